@@ -0,0 +1,196 @@
+package com.nullprogram.chess.models;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Bitboard index of the pieces on a board.
+ *
+ * The board keeps one of these in step with its square array so that piece
+ * movement and attack questions can be answered with shifts and masks rather
+ * than by walking Position objects. Square (x, y) is bit y * width + x.
+ */
+public abstract class Bitboards implements Serializable, Cloneable {
+
+	/** Versioning for object serialization. */
+	@Serial
+	private static final long serialVersionUID = -3183025912604712186L;
+
+	/** Piece types by ordinal. */
+	protected static final PieceType[] TYPES = PieceType.values();
+
+	/** Width of the indexed board. */
+	private final int width;
+
+	/** Height of the indexed board. */
+	private final int height;
+
+	/**
+	 * Create an index for a board of the given size.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 */
+	protected Bitboards(final int w, final int h) {
+		width = w;
+		height = h;
+	}
+
+	/**
+	 * Create the best bitboard index for the given board size.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 * @return a fresh index, or null if the board is too large
+	 */
+	public static Bitboards create(final int w, final int h) {
+		if (w * h <= Bitboards64.SQUARES) {
+			return new Bitboards64(w, h);
+		} else if (w * h <= Bitboards128.SQUARES) {
+			return new Bitboards128(w, h);
+		}
+		return null;
+	}
+
+	/**
+	 * Copy this index. The lookup tables never change, so they are shared
+	 * with the copy; only the piece sets are duplicated.
+	 *
+	 * @return an independent index of the same pieces
+	 */
+	public abstract Bitboards copy();
+
+	/**
+	 * Make a shallow field-by-field copy, for copy() to build on.
+	 *
+	 * @return the shallow copy
+	 */
+	protected final Bitboards shallowCopy() {
+		try {
+			return (Bitboards) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the width of the indexed board.
+	 *
+	 * @return board width
+	 */
+	public final int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the height of the indexed board.
+	 *
+	 * @return board height
+	 */
+	public final int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the bit index of a position.
+	 *
+	 * @param pos the position
+	 * @return the bit index
+	 */
+	public final int bit(final Position pos) {
+		return pos.getY() * width + pos.getX();
+	}
+
+	/**
+	 * Record a piece on the given bit.
+	 *
+	 * @param bit square bit index
+	 * @param p   the piece
+	 */
+	public abstract void add(int bit, Piece p);
+
+	/**
+	 * Remove a piece from the given bit.
+	 *
+	 * @param bit square bit index
+	 * @param p   the piece
+	 */
+	public abstract void remove(int bit, Piece p);
+
+	/**
+	 * Find the king of the given side.
+	 *
+	 * @param side whose king
+	 * @return the king's bit index, or -1 if there is no king
+	 */
+	public abstract int king(Side side);
+
+	/**
+	 * Determine if any piece of the given side attacks the given bit.
+	 *
+	 * @param bit square bit index
+	 * @param by  attacking side
+	 * @return true if the square is attacked
+	 */
+	public abstract boolean attacked(int bit, Side by);
+
+	/**
+	 * Append the moves of the given kinds for a piece to a move list.
+	 *
+	 * Destinations holding a friendly piece are skipped, and slides stop at
+	 * the first piece in the way.
+	 *
+	 * @param p     the moving piece
+	 * @param kinds bitwise or of the Board movement kind constants
+	 * @param list  list to be appended to
+	 */
+	public abstract void addMoves(Piece p, int kinds, MoveList list);
+
+	/**
+	 * Append the packed moves of every piece of a side other than its pawns,
+	 * in one pass over the side's bitboards. Castling is left to the caller.
+	 *
+	 * Destinations holding a friendly piece are skipped, and slides stop at
+	 * the first piece in the way.
+	 *
+	 * @param side    side of the moving pieces
+	 * @param squares board square index of each bit
+	 * @param out     buffer to be appended to
+	 */
+	public abstract void pieceMoves(Side side, int[] squares, MoveBuffer out);
+
+	/**
+	 * List the destinations of every pawn of a side at once: one square
+	 * straight ahead onto an empty square, or one square diagonally ahead
+	 * onto an enemy piece. Double pushes, en passant and promotion are left
+	 * to the caller.
+	 *
+	 * @param side side of the pawns
+	 * @param dx   file step: 0 to push, -1 or 1 to capture
+	 * @param out  receives the destination bit indexes
+	 * @return number of destinations written
+	 */
+	public abstract int pawnTargets(Side side, int dx, int[] out);
+
+	/**
+	 * Count the moves of the given kinds a piece would have from a bit,
+	 * without creating them.
+	 *
+	 * @param bit   square bit index
+	 * @param kinds bitwise or of the Board movement kind constants
+	 * @param side  side of the piece
+	 * @return number of destinations
+	 */
+	public abstract int countMoves(int bit, int kinds, Side side);
+
+	/**
+	 * Compute the move from a piece to a bit index.
+	 *
+	 * @param from origin of the move
+	 * @param bit  destination bit index
+	 * @return the move
+	 */
+	protected final Move moveTo(final Position from, final int bit) {
+		return new Move(from, Position.of(bit % width, bit / width));
+	}
+}
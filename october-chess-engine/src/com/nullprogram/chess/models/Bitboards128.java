@@ -0,0 +1,574 @@
+package com.nullprogram.chess.models;
+
+import java.io.Serial;
+
+/**
+ * Two-word bitboards for boards of at most 128 squares, such as Gothic.
+ *
+ * Bits 0-63 live in the low word and bits 64-127 in the high word. Shifts
+ * carry between the words, and left/right edges are masked using file masks
+ * derived from the board width, so boards that are not 8 files wide work.
+ */
+public final class Bitboards128 extends Bitboards {
+
+	/** Versioning for object serialization. */
+	@Serial
+	private static final long serialVersionUID = -2741380923307516148L;
+
+	/** Number of squares that fit in two words. */
+	static final int SQUARES = 128;
+
+	/** Bits per word. */
+	private static final int WORD = 64;
+
+	/** Orthogonal directions as {dx, dy} pairs. */
+	private static final int[][] ORTHOGONALS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+
+	/** Diagonal directions as {dx, dy} pairs. */
+	private static final int[][] DIAGONALS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+	/** Knight jumps as {dx, dy} pairs. */
+	private static final int[][] JUMPS = {{1, 2}, {2, 1}, {-2, 1}, {-2, -1}, {2, -1}, {1, -2}, {-1, -2}, {-1, 2}};
+
+	/** Low word of the pieces of each side and type. */
+	private long[][] piecesLo = new long[2][PieceType.COUNT];
+
+	/** High word of the pieces of each side and type. */
+	private long[][] piecesHi = new long[2][PieceType.COUNT];
+
+	/** Low word of all pieces of each side. */
+	private long[] occupiedLo = new long[2];
+
+	/** High word of all pieces of each side. */
+	private long[] occupiedHi = new long[2];
+
+	/** Bit shift for each orthogonal direction. */
+	private final int[] orthShift = new int[ORTHOGONALS.length];
+
+	/** Landing mask for each orthogonal direction (low word). */
+	private final long[] orthMaskLo = new long[ORTHOGONALS.length];
+
+	/** Landing mask for each orthogonal direction (high word). */
+	private final long[] orthMaskHi = new long[ORTHOGONALS.length];
+
+	/** Bit shift for each diagonal direction. */
+	private final int[] diagShift = new int[DIAGONALS.length];
+
+	/** Landing mask for each diagonal direction (low word). */
+	private final long[] diagMaskLo = new long[DIAGONALS.length];
+
+	/** Landing mask for each diagonal direction (high word). */
+	private final long[] diagMaskHi = new long[DIAGONALS.length];
+
+	/** Knight targets for each square (low word). */
+	private final long[] knightLo;
+
+	/** Knight targets for each square (high word). */
+	private final long[] knightHi;
+
+	/** King targets for each square (low word). */
+	private final long[] kingLo;
+
+	/** King targets for each square (high word). */
+	private final long[] kingHi;
+
+	/** Squares attacked by a pawn of each side on each square (low word). */
+	private final long[][] pawnLo;
+
+	/** Squares attacked by a pawn of each side on each square (high word). */
+	private final long[][] pawnHi;
+
+	/** High word of the ray most recently computed by rayLo(). */
+	private transient long rayHi;
+
+	/** High word of the destinations most recently computed by targetsLo(). */
+	private transient long targetsHi;
+
+	/** High word of the set most recently moved by shiftLo(). */
+	private transient long shiftHi;
+
+	/**
+	 * Create a bitboard index for the given board size.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 */
+	Bitboards128(final int w, final int h) {
+		super(w, h);
+		int n = w * h;
+		long allLo = n >= WORD ? -1L : (1L << n) - 1;
+		long allHi = n >= SQUARES ? -1L : n > WORD ? (1L << (n - WORD)) - 1 : 0;
+		long leftLo = 0;
+		long leftHi = 0;
+		long rightLo = 0;
+		long rightHi = 0;
+		for (int y = 0; y < h; y++) {
+			leftLo |= lo(y * w);
+			leftHi |= hi(y * w);
+			rightLo |= lo(y * w + w - 1);
+			rightHi |= hi(y * w + w - 1);
+		}
+		directions(ORTHOGONALS, orthShift, orthMaskLo, orthMaskHi, allLo, allHi, leftLo, leftHi, rightLo, rightHi);
+		directions(DIAGONALS, diagShift, diagMaskLo, diagMaskHi, allLo, allHi, leftLo, leftHi, rightLo, rightHi);
+		knightLo = new long[n];
+		knightHi = new long[n];
+		kingLo = new long[n];
+		kingHi = new long[n];
+		pawnLo = new long[2][n];
+		pawnHi = new long[2][n];
+		int white = Side.WHITE.ordinal();
+		int black = Side.BLACK.ordinal();
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int bit = y * w + x;
+				for (int[] j : JUMPS) {
+					int t = square(x + j[0], y + j[1]);
+					knightLo[bit] |= lo(t);
+					knightHi[bit] |= hi(t);
+				}
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (dx != 0 || dy != 0) {
+							int t = square(x + dx, y + dy);
+							kingLo[bit] |= lo(t);
+							kingHi[bit] |= hi(t);
+						}
+					}
+				}
+				for (int dx = -1; dx <= 1; dx += 2) {
+					int t = square(x + dx, y + 1);
+					pawnLo[white][bit] |= lo(t);
+					pawnHi[white][bit] |= hi(t);
+					t = square(x + dx, y - 1);
+					pawnLo[black][bit] |= lo(t);
+					pawnHi[black][bit] |= hi(t);
+				}
+			}
+		}
+	}
+
+	@Override
+	public Bitboards copy() {
+		Bitboards128 copy = (Bitboards128) shallowCopy();
+		copy.piecesLo = new long[][] {piecesLo[0].clone(), piecesLo[1].clone()};
+		copy.piecesHi = new long[][] {piecesHi[0].clone(), piecesHi[1].clone()};
+		copy.occupiedLo = occupiedLo.clone();
+		copy.occupiedHi = occupiedHi.clone();
+		return copy;
+	}
+
+	/**
+	 * Fill in the shift and landing masks for a set of directions.
+	 *
+	 * @param dirs    directions as {dx, dy} pairs
+	 * @param shift   output shifts
+	 * @param maskLo  output landing masks (low word)
+	 * @param maskHi  output landing masks (high word)
+	 * @param allLo   every square on the board (low word)
+	 * @param allHi   every square on the board (high word)
+	 * @param leftLo  the leftmost file (low word)
+	 * @param leftHi  the leftmost file (high word)
+	 * @param rightLo the rightmost file (low word)
+	 * @param rightHi the rightmost file (high word)
+	 */
+	private void directions(final int[][] dirs, final int[] shift, final long[] maskLo, final long[] maskHi,
+			final long allLo, final long allHi, final long leftLo, final long leftHi, final long rightLo,
+			final long rightHi) {
+		for (int i = 0; i < dirs.length; i++) {
+			int dx = dirs[i][0];
+			shift[i] = dirs[i][1] * getWidth() + dx;
+			maskLo[i] = allLo;
+			maskHi[i] = allHi;
+			if (dx > 0) {
+				maskLo[i] &= ~leftLo;
+				maskHi[i] &= ~leftHi;
+			} else if (dx < 0) {
+				maskLo[i] &= ~rightLo;
+				maskHi[i] &= ~rightHi;
+			}
+		}
+	}
+
+	/**
+	 * Square index of a coordinate, or -1 if it is off the board.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the bit index
+	 */
+	private int square(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+			return -1;
+		}
+		return y * getWidth() + x;
+	}
+
+	/**
+	 * Low word of a single-bit set.
+	 *
+	 * @param bit bit index, or -1 for none
+	 * @return the low word
+	 */
+	private static long lo(final int bit) {
+		if (bit < 0 || bit >= WORD) {
+			return 0;
+		}
+		return 1L << bit;
+	}
+
+	/**
+	 * High word of a single-bit set.
+	 *
+	 * @param bit bit index, or -1 for none
+	 * @return the high word
+	 */
+	private static long hi(final int bit) {
+		if (bit < WORD) {
+			return 0;
+		}
+		return 1L << (bit - WORD);
+	}
+
+	@Override
+	public void add(final int bit, final Piece p) {
+		int s = p.getSide().ordinal();
+		int t = p.getType().ordinal();
+		if (bit < WORD) {
+			piecesLo[s][t] |= 1L << bit;
+			occupiedLo[s] |= 1L << bit;
+		} else {
+			piecesHi[s][t] |= 1L << (bit - WORD);
+			occupiedHi[s] |= 1L << (bit - WORD);
+		}
+	}
+
+	@Override
+	public void remove(final int bit, final Piece p) {
+		int s = p.getSide().ordinal();
+		int t = p.getType().ordinal();
+		if (bit < WORD) {
+			piecesLo[s][t] &= ~(1L << bit);
+			occupiedLo[s] &= ~(1L << bit);
+		} else {
+			piecesHi[s][t] &= ~(1L << (bit - WORD));
+			occupiedHi[s] &= ~(1L << (bit - WORD));
+		}
+	}
+
+	@Override
+	public int king(final Side side) {
+		int k = PieceType.KING.ordinal();
+		long lo = piecesLo[side.ordinal()][k];
+		if (lo != 0) {
+			return Long.numberOfTrailingZeros(lo);
+		}
+		long hi = piecesHi[side.ordinal()][k];
+		if (hi != 0) {
+			return WORD + Long.numberOfTrailingZeros(hi);
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean attacked(final int bit, final Side by) {
+		int s = by.ordinal();
+		long[] lo = piecesLo[s];
+		long[] hi = piecesHi[s];
+		int o = Piece.opposite(by).ordinal();
+		int pawn = PieceType.PAWN.ordinal();
+		if ((pawnLo[o][bit] & lo[pawn]) != 0 || (pawnHi[o][bit] & hi[pawn]) != 0) {
+			return true;
+		}
+		int knight = PieceType.KNIGHT.ordinal();
+		int chancellor = PieceType.CHANCELLOR.ordinal();
+		int archbishop = PieceType.ARCHBISHOP.ordinal();
+		if ((knightLo[bit] & (lo[knight] | lo[chancellor] | lo[archbishop])) != 0
+				|| (knightHi[bit] & (hi[knight] | hi[chancellor] | hi[archbishop])) != 0) {
+			return true;
+		}
+		int king = PieceType.KING.ordinal();
+		if ((kingLo[bit] & lo[king]) != 0 || (kingHi[bit] & hi[king]) != 0) {
+			return true;
+		}
+		long occLo = occupiedLo[0] | occupiedLo[1];
+		long occHi = occupiedHi[0] | occupiedHi[1];
+		int queen = PieceType.QUEEN.ordinal();
+		int rook = PieceType.ROOK.ordinal();
+		long orthLo = lo[queen] | lo[rook] | lo[chancellor];
+		long orthHi = hi[queen] | hi[rook] | hi[chancellor];
+		if ((orthLo | orthHi) != 0
+				&& slideHits(bit, orthShift, orthMaskLo, orthMaskHi, occLo, occHi, orthLo, orthHi)) {
+			return true;
+		}
+		int bishop = PieceType.BISHOP.ordinal();
+		long diagLo = lo[queen] | lo[bishop] | lo[archbishop];
+		long diagHi = hi[queen] | hi[bishop] | hi[archbishop];
+		return (diagLo | diagHi) != 0
+				&& slideHits(bit, diagShift, diagMaskLo, diagMaskHi, occLo, occHi, diagLo, diagHi);
+	}
+
+	@Override
+	public void addMoves(final Piece p, final int kinds, final MoveList list) {
+		Position from = p.getPosition();
+		long tLo = targetsLo(bit(from), kinds, p.getSide());
+		long tHi = targetsHi;
+		while (tLo != 0) {
+			list.addTarget(moveTo(from, Long.numberOfTrailingZeros(tLo)));
+			tLo &= tLo - 1;
+		}
+		while (tHi != 0) {
+			list.addTarget(moveTo(from, WORD + Long.numberOfTrailingZeros(tHi)));
+			tHi &= tHi - 1;
+		}
+	}
+
+	@Override
+	public void pieceMoves(final Side side, final int[] squares, final MoveBuffer out) {
+		int s = side.ordinal();
+		for (int t = 0; t < TYPES.length; t++) {
+			if (t == PieceType.PAWN.ordinal()) {
+				continue;
+			}
+			int kinds = TYPES[t].getKinds();
+			for (long b = piecesLo[s][t]; b != 0; b &= b - 1) {
+				int bit = Long.numberOfTrailingZeros(b);
+				appendMoves(bit, TYPES[t], targetsLo(bit, kinds, side), targetsHi, s, squares, out);
+			}
+			for (long b = piecesHi[s][t]; b != 0; b &= b - 1) {
+				int bit = WORD + Long.numberOfTrailingZeros(b);
+				appendMoves(bit, TYPES[t], targetsLo(bit, kinds, side), targetsHi, s, squares, out);
+			}
+		}
+	}
+
+	/**
+	 * Append the packed moves of one piece.
+	 *
+	 * @param bit     origin bit index
+	 * @param type    type of the moving piece
+	 * @param tLo     low word of the destinations
+	 * @param tHi     high word of the destinations
+	 * @param side    side ordinal of the moving piece
+	 * @param squares board square index of each bit
+	 * @param out     buffer to be appended to
+	 */
+	private void appendMoves(final int bit, final PieceType type, final long tLo, final long tHi,
+			final int side, final int[] squares, final MoveBuffer out) {
+		int from = squares[bit];
+		for (long t = tLo; t != 0; t &= t - 1) {
+			int to = Long.numberOfTrailingZeros(t);
+			out.add(PackedMove.of(from, squares[to], type, typeAt(to, 1 - side), PackedMove.NORMAL, null));
+		}
+		for (long t = tHi; t != 0; t &= t - 1) {
+			int to = WORD + Long.numberOfTrailingZeros(t);
+			out.add(PackedMove.of(from, squares[to], type, typeAt(to, 1 - side), PackedMove.NORMAL, null));
+		}
+	}
+
+	/**
+	 * Type of the piece of a side on a bit.
+	 *
+	 * @param bit  square bit index
+	 * @param side side ordinal of the piece
+	 * @return the piece type, or null if the bit holds no piece of the side
+	 */
+	private PieceType typeAt(final int bit, final int side) {
+		long[] pieces = bit < WORD ? piecesLo[side] : piecesHi[side];
+		long mask = 1L << bit;
+		if ((mask & (bit < WORD ? occupiedLo[side] : occupiedHi[side])) == 0) {
+			return null;
+		}
+		int t = 0;
+		while ((pieces[t] & mask) == 0) {
+			t++;
+		}
+		return TYPES[t];
+	}
+
+	@Override
+	public int pawnTargets(final Side side, final int dx, final int[] out) {
+		int s = side.ordinal();
+		int p = PieceType.PAWN.ordinal();
+		long tLo;
+		long tHi;
+		if (dx == 0) {
+			/* Straight ahead is the first orthogonal of White, the second of Black. */
+			tLo = shiftLo(piecesLo[s][p], piecesHi[s][p], orthShift[s], orthMaskLo[s], orthMaskHi[s])
+					& ~(occupiedLo[0] | occupiedLo[1]);
+			tHi = shiftHi & ~(occupiedHi[0] | occupiedHi[1]);
+		} else {
+			/* The diagonals run right then left, ahead for White then for Black. */
+			int d = 2 * s + (dx > 0 ? 0 : 1);
+			tLo = shiftLo(piecesLo[s][p], piecesHi[s][p], diagShift[d], diagMaskLo[d], diagMaskHi[d])
+					& occupiedLo[1 - s];
+			tHi = shiftHi & occupiedHi[1 - s];
+		}
+		int n = 0;
+		for (; tLo != 0; tLo &= tLo - 1) {
+			out[n++] = Long.numberOfTrailingZeros(tLo);
+		}
+		for (; tHi != 0; tHi &= tHi - 1) {
+			out[n++] = WORD + Long.numberOfTrailingZeros(tHi);
+		}
+		return n;
+	}
+
+	@Override
+	public int countMoves(final int bit, final int kinds, final Side side) {
+		return Long.bitCount(targetsLo(bit, kinds, side)) + Long.bitCount(targetsHi);
+	}
+
+	/**
+	 * Destinations of the given kinds of move from a bit.
+	 *
+	 * The low word is returned and the high word is left in targetsHi.
+	 *
+	 * @param bit   square bit index
+	 * @param kinds bitwise or of the Board movement kind constants
+	 * @param side  side of the moving piece
+	 * @return low word of the destination squares not holding a friendly
+	 *         piece
+	 */
+	private long targetsLo(final int bit, final int kinds, final Side side) {
+		long occLo = occupiedLo[0] | occupiedLo[1];
+		long occHi = occupiedHi[0] | occupiedHi[1];
+		long tLo = 0;
+		long tHi = 0;
+		if ((kinds & Board.ORTHOGONAL) != 0) {
+			for (int i = 0; i < orthShift.length; i++) {
+				tLo |= rayLo(bit, orthShift[i], orthMaskLo[i], orthMaskHi[i], occLo, occHi);
+				tHi |= rayHi;
+			}
+		}
+		if ((kinds & Board.DIAGONAL) != 0) {
+			for (int i = 0; i < diagShift.length; i++) {
+				tLo |= rayLo(bit, diagShift[i], diagMaskLo[i], diagMaskHi[i], occLo, occHi);
+				tHi |= rayHi;
+			}
+		}
+		if ((kinds & Board.JUMP) != 0) {
+			tLo |= knightLo[bit];
+			tHi |= knightHi[bit];
+		}
+		if ((kinds & Board.STEP) != 0) {
+			tLo |= kingLo[bit];
+			tHi |= kingHi[bit];
+		}
+		int s = side.ordinal();
+		targetsHi = tHi & ~occupiedHi[s];
+		return tLo & ~occupiedLo[s];
+	}
+
+	/**
+	 * Compute one ray from a square, including the first blocker.
+	 *
+	 * The low word is returned and the high word is left in rayHi.
+	 *
+	 * @param bit    origin square
+	 * @param shift  direction shift
+	 * @param maskLo direction landing mask (low word)
+	 * @param maskHi direction landing mask (high word)
+	 * @param occLo  occupied squares (low word)
+	 * @param occHi  occupied squares (high word)
+	 * @return low word of the ray
+	 */
+	private long rayLo(final int bit, final int shift, final long maskLo, final long maskHi, final long occLo,
+			final long occHi) {
+		long bLo = lo(bit);
+		long bHi = hi(bit);
+		long aLo = 0;
+		long aHi = 0;
+		do {
+			bLo = shiftLo(bLo, bHi, shift, maskLo, maskHi);
+			bHi = shiftHi;
+			aLo |= bLo;
+			aHi |= bHi;
+		} while ((bLo & ~occLo) != 0 || (bHi & ~occHi) != 0);
+		rayHi = aHi;
+		return aLo;
+	}
+
+	/**
+	 * Move every square of a set one step in a direction.
+	 *
+	 * The low word is returned and the high word is left in shiftHi.
+	 *
+	 * @param bLo    the set (low word)
+	 * @param bHi    the set (high word)
+	 * @param shift  direction shift
+	 * @param maskLo direction landing mask (low word)
+	 * @param maskHi direction landing mask (high word)
+	 * @return low word of the moved set, less the squares that left the board
+	 */
+	private long shiftLo(final long bLo, final long bHi, final int shift, final long maskLo, final long maskHi) {
+		long nLo;
+		long nHi;
+		if (shift >= WORD) {
+			nLo = 0;
+			nHi = shl(bLo, shift - WORD);
+		} else if (shift > 0) {
+			nLo = shl(bLo, shift);
+			nHi = shl(bHi, shift) | shr(bLo, WORD - shift);
+		} else if (shift <= -WORD) {
+			nLo = shr(bHi, -shift - WORD);
+			nHi = 0;
+		} else {
+			nLo = shr(bLo, -shift) | shl(bHi, WORD + shift);
+			nHi = shr(bHi, -shift);
+		}
+		shiftHi = nHi & maskHi;
+		return nLo & maskLo;
+	}
+
+	/**
+	 * Determine if any ray from a square reaches one of the given pieces.
+	 *
+	 * @param bit    origin square
+	 * @param shift  direction shifts
+	 * @param maskLo direction landing masks (low word)
+	 * @param maskHi direction landing masks (high word)
+	 * @param occLo  occupied squares (low word)
+	 * @param occHi  occupied squares (high word)
+	 * @param tgtLo  pieces looked for (low word)
+	 * @param tgtHi  pieces looked for (high word)
+	 * @return true if a ray ends on one of the pieces
+	 */
+	private boolean slideHits(final int bit, final int[] shift, final long[] maskLo, final long[] maskHi,
+			final long occLo, final long occHi, final long tgtLo, final long tgtHi) {
+		for (int i = 0; i < shift.length; i++) {
+			long aLo = rayLo(bit, shift[i], maskLo[i], maskHi[i], occLo, occHi);
+			if ((aLo & tgtLo) != 0 || (rayHi & tgtHi) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Shift left, yielding zero for out-of-range distances.
+	 *
+	 * @param w word to shift
+	 * @param n distance
+	 * @return shifted word
+	 */
+	private static long shl(final long w, final int n) {
+		if (n <= 0 || n >= WORD) {
+			return n == 0 ? w : 0;
+		}
+		return w << n;
+	}
+
+	/**
+	 * Unsigned shift right, yielding zero for out-of-range distances.
+	 *
+	 * @param w word to shift
+	 * @param n distance
+	 * @return shifted word
+	 */
+	private static long shr(final long w, final int n) {
+		if (n <= 0 || n >= WORD) {
+			return n == 0 ? w : 0;
+		}
+		return w >>> n;
+	}
+}
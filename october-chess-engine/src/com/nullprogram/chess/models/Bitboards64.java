@@ -0,0 +1,392 @@
+package com.nullprogram.chess.models;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+
+/**
+ * Single-word bitboards for boards of at most 64 squares.
+ *
+ * Shifts that move a bit across the left or right edge are masked off using
+ * file masks derived from the board width, so any width works, not just 8.
+ */
+public final class Bitboards64 extends Bitboards {
+
+	/** Versioning for object serialization. */
+	@Serial
+	private static final long serialVersionUID = 6391578326427914466L;
+
+	/** Number of squares that fit in one word. */
+	static final int SQUARES = 64;
+
+	/** Orthogonal directions as {dx, dy} pairs. */
+	private static final int[][] ORTHOGONALS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+
+	/** Diagonal directions as {dx, dy} pairs. */
+	private static final int[][] DIAGONALS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+	/** Knight jumps as {dx, dy} pairs. */
+	private static final int[][] JUMPS = {{1, 2}, {2, 1}, {-2, 1}, {-2, -1}, {2, -1}, {1, -2}, {-1, -2}, {-1, 2}};
+
+	/** Pieces of each side and type. */
+	private long[][] pieces = new long[2][PieceType.COUNT];
+
+	/** All pieces of each side. */
+	private long[] occupied = new long[2];
+
+	/** Bit shift for each orthogonal direction. */
+	private final int[] orthShift = new int[ORTHOGONALS.length];
+
+	/** Landing mask for each orthogonal direction. */
+	private final long[] orthMask = new long[ORTHOGONALS.length];
+
+	/** Bit shift for each diagonal direction. */
+	private final int[] diagShift = new int[DIAGONALS.length];
+
+	/** Landing mask for each diagonal direction. */
+	private final long[] diagMask = new long[DIAGONALS.length];
+
+	/** Knight targets for each square. */
+	private final long[] knight;
+
+	/** King targets for each square. */
+	private final long[] king;
+
+	/** Squares attacked by a pawn of each side on each square. */
+	private final long[][] pawn;
+
+	/** Shared slider attack tables, or null to slide by shifting. */
+	private transient Magics magics;
+
+	/**
+	 * Create a bitboard index for the given board size.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 */
+	Bitboards64(final int w, final int h) {
+		super(w, h);
+		int n = w * h;
+		long all = n == SQUARES ? -1L : (1L << n) - 1;
+		long left = 0;
+		long right = 0;
+		for (int y = 0; y < h; y++) {
+			left |= 1L << (y * w);
+			right |= 1L << (y * w + w - 1);
+		}
+		directions(ORTHOGONALS, orthShift, orthMask, all, left, right);
+		directions(DIAGONALS, diagShift, diagMask, all, left, right);
+		knight = new long[n];
+		king = new long[n];
+		pawn = new long[2][n];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				int bit = y * w + x;
+				for (int[] j : JUMPS) {
+					knight[bit] |= mask(x + j[0], y + j[1]);
+				}
+				for (int dy = -1; dy <= 1; dy++) {
+					for (int dx = -1; dx <= 1; dx++) {
+						if (dx != 0 || dy != 0) {
+							king[bit] |= mask(x + dx, y + dy);
+						}
+					}
+				}
+				pawn[Side.WHITE.ordinal()][bit] = mask(x - 1, y + 1) | mask(x + 1, y + 1);
+				pawn[Side.BLACK.ordinal()][bit] = mask(x - 1, y - 1) | mask(x + 1, y - 1);
+			}
+		}
+		magics = Magics.get(w, h);
+	}
+
+	@Override
+	public Bitboards copy() {
+		Bitboards64 copy = (Bitboards64) shallowCopy();
+		copy.pieces = new long[][] {pieces[0].clone(), pieces[1].clone()};
+		copy.occupied = occupied.clone();
+		return copy;
+	}
+
+	/**
+	 * Reattach the shared slider tables after deserialization.
+	 *
+	 * @param in the stream
+	 * @throws IOException            on read failure
+	 * @throws ClassNotFoundException on a missing class
+	 */
+	@Serial
+	private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		magics = Magics.get(getWidth(), getHeight());
+	}
+
+	/**
+	 * Fill in the shift and landing mask for a set of directions.
+	 *
+	 * @param dirs  directions as {dx, dy} pairs
+	 * @param shift output shifts
+	 * @param mask  output landing masks
+	 * @param all   every square on the board
+	 * @param left  the leftmost file
+	 * @param right the rightmost file
+	 */
+	private void directions(final int[][] dirs, final int[] shift, final long[] mask, final long all,
+			final long left, final long right) {
+		for (int i = 0; i < dirs.length; i++) {
+			int dx = dirs[i][0];
+			shift[i] = dirs[i][1] * getWidth() + dx;
+			mask[i] = all;
+			if (dx > 0) {
+				mask[i] &= ~left;
+			} else if (dx < 0) {
+				mask[i] &= ~right;
+			}
+			if (Math.abs(shift[i]) >= SQUARES) {
+				mask[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Single-bit mask for a coordinate, or zero if it is off the board.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the mask
+	 */
+	private long mask(final int x, final int y) {
+		if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+			return 0;
+		}
+		return 1L << (y * getWidth() + x);
+	}
+
+	@Override
+	public void add(final int bit, final Piece p) {
+		long b = 1L << bit;
+		int s = p.getSide().ordinal();
+		pieces[s][p.getType().ordinal()] |= b;
+		occupied[s] |= b;
+	}
+
+	@Override
+	public void remove(final int bit, final Piece p) {
+		long b = ~(1L << bit);
+		int s = p.getSide().ordinal();
+		pieces[s][p.getType().ordinal()] &= b;
+		occupied[s] &= b;
+	}
+
+	@Override
+	public int king(final Side side) {
+		long k = pieces[side.ordinal()][PieceType.KING.ordinal()];
+		if (k == 0) {
+			return -1;
+		}
+		return Long.numberOfTrailingZeros(k);
+	}
+
+	@Override
+	public boolean attacked(final int bit, final Side by) {
+		long[] p = pieces[by.ordinal()];
+		if ((pawn[Piece.opposite(by).ordinal()][bit] & p[PieceType.PAWN.ordinal()]) != 0) {
+			return true;
+		}
+		long jumpers = p[PieceType.KNIGHT.ordinal()] | p[PieceType.CHANCELLOR.ordinal()]
+				| p[PieceType.ARCHBISHOP.ordinal()];
+		if ((knight[bit] & jumpers) != 0 || (king[bit] & p[PieceType.KING.ordinal()]) != 0) {
+			return true;
+		}
+		long occ = occupied[0] | occupied[1];
+		long queens = p[PieceType.QUEEN.ordinal()];
+		long orth = queens | p[PieceType.ROOK.ordinal()] | p[PieceType.CHANCELLOR.ordinal()];
+		if (orth != 0 && (orthogonal(bit, occ) & orth) != 0) {
+			return true;
+		}
+		long diag = queens | p[PieceType.BISHOP.ordinal()] | p[PieceType.ARCHBISHOP.ordinal()];
+		return diag != 0 && (diagonal(bit, occ) & diag) != 0;
+	}
+
+	@Override
+	public void addMoves(final Piece p, final int kinds, final MoveList list) {
+		Position from = p.getPosition();
+		long targets = targets(bit(from), kinds, p.getSide());
+		while (targets != 0) {
+			list.addTarget(moveTo(from, Long.numberOfTrailingZeros(targets)));
+			targets &= targets - 1;
+		}
+	}
+
+	@Override
+	public void pieceMoves(final Side side, final int[] squares, final MoveBuffer out) {
+		int s = side.ordinal();
+		long occ = occupied[0] | occupied[1];
+		long own = occupied[s];
+		long[] mine = pieces[s];
+		for (int t = 0; t < TYPES.length; t++) {
+			if (t == PieceType.PAWN.ordinal()) {
+				continue;
+			}
+			PieceType type = TYPES[t];
+			int kinds = type.getKinds();
+			for (long b = mine[t]; b != 0; b &= b - 1) {
+				int bit = Long.numberOfTrailingZeros(b);
+				/* Hemmed in by friends, as in the opening, only a jump gets out. */
+				if ((king[bit] & ~own) == 0 && (kinds & Board.JUMP) == 0) {
+					continue;
+				}
+				int from = squares[bit];
+				for (long m = attacks(bit, kinds, occ) & ~own; m != 0; m &= m - 1) {
+					int to = Long.numberOfTrailingZeros(m);
+					PieceType captured = (occ & 1L << to) == 0 ? null : typeAt(to, 1 - s);
+					out.add(PackedMove.of(from, squares[to], type, captured, PackedMove.NORMAL, null));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Type of the piece on a bit, which must hold a piece of the given side.
+	 *
+	 * @param bit  square bit index
+	 * @param side side ordinal of the piece
+	 * @return the piece type
+	 */
+	private PieceType typeAt(final int bit, final int side) {
+		int t = 0;
+		while ((pieces[side][t] & 1L << bit) == 0) {
+			t++;
+		}
+		return TYPES[t];
+	}
+
+	@Override
+	public int pawnTargets(final Side side, final int dx, final int[] out) {
+		int s = side.ordinal();
+		long pawns = pieces[s][PieceType.PAWN.ordinal()];
+		long t;
+		if (dx == 0) {
+			/* Straight ahead is the first orthogonal of White, the second of Black. */
+			t = shift(pawns, orthShift[s], orthMask[s]) & ~(occupied[0] | occupied[1]);
+		} else {
+			/* The diagonals run right then left, ahead for White then for Black. */
+			int d = 2 * s + (dx > 0 ? 0 : 1);
+			t = shift(pawns, diagShift[d], diagMask[d]) & occupied[1 - s];
+		}
+		int n = 0;
+		for (; t != 0; t &= t - 1) {
+			out[n++] = Long.numberOfTrailingZeros(t);
+		}
+		return n;
+	}
+
+	@Override
+	public int countMoves(final int bit, final int kinds, final Side side) {
+		return Long.bitCount(targets(bit, kinds, side));
+	}
+
+	/**
+	 * Destinations of the given kinds of move from a bit.
+	 *
+	 * @param bit   square bit index
+	 * @param kinds bitwise or of the Board movement kind constants
+	 * @param side  side of the moving piece
+	 * @return destination squares not holding a friendly piece
+	 */
+	private long targets(final int bit, final int kinds, final Side side) {
+		return attacks(bit, kinds, occupied[0] | occupied[1]) & ~occupied[side.ordinal()];
+	}
+
+	/**
+	 * Squares reached by the given kinds of move from a bit, friend or foe.
+	 *
+	 * @param bit   square bit index
+	 * @param kinds bitwise or of the Board movement kind constants
+	 * @param occ   occupied squares
+	 * @return reached squares
+	 */
+	private long attacks(final int bit, final int kinds, final long occ) {
+		long targets = 0;
+		if ((kinds & Board.ORTHOGONAL) != 0) {
+			targets |= orthogonal(bit, occ);
+		}
+		if ((kinds & Board.DIAGONAL) != 0) {
+			targets |= diagonal(bit, occ);
+		}
+		if ((kinds & Board.JUMP) != 0) {
+			targets |= knight[bit];
+		}
+		if ((kinds & Board.STEP) != 0) {
+			targets |= king[bit];
+		}
+		return targets;
+	}
+
+	/**
+	 * Squares attacked along ranks and files from a square.
+	 *
+	 * @param bit origin square
+	 * @param occ occupied squares
+	 * @return attacked squares
+	 */
+	private long orthogonal(final int bit, final long occ) {
+		if (magics != null) {
+			return magics.orthogonal(bit, occ);
+		}
+		return slide(bit, orthShift, orthMask, occ);
+	}
+
+	/**
+	 * Squares attacked along diagonals from a square.
+	 *
+	 * @param bit origin square
+	 * @param occ occupied squares
+	 * @return attacked squares
+	 */
+	private long diagonal(final int bit, final long occ) {
+		if (magics != null) {
+			return magics.diagonal(bit, occ);
+		}
+		return slide(bit, diagShift, diagMask, occ);
+	}
+
+	/**
+	 * Move every square of a set one step in a direction.
+	 *
+	 * @param b     the set
+	 * @param shift direction shift
+	 * @param mask  direction landing mask
+	 * @return the moved set, less the squares that left the board
+	 */
+	private static long shift(final long b, final int shift, final long mask) {
+		if (shift > 0) {
+			return (b << shift) & mask;
+		}
+		return (b >>> -shift) & mask;
+	}
+
+	/**
+	 * Union of the rays from a square in the given directions.
+	 *
+	 * Each ray includes the first occupied square it reaches.
+	 *
+	 * @param bit   origin square
+	 * @param shift direction shifts
+	 * @param mask  direction landing masks
+	 * @param occ   occupied squares
+	 * @return attacked squares
+	 */
+	private static long slide(final int bit, final int[] shift, final long[] mask, final long occ) {
+		long attacks = 0;
+		for (int i = 0; i < shift.length; i++) {
+			int s = shift[i];
+			long m = mask[i];
+			long b = 1L << bit;
+			do {
+				b = shift(b, s, m);
+				attacks |= b;
+			} while ((b & ~occ) != 0);
+		}
+		return attacks;
+	}
+}
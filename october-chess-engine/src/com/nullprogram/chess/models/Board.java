@@ -1,11 +1,10 @@
 package com.nullprogram.chess.models;
 
-import com.nullprogram.chess.models.boards.BoardFactory;
-import com.nullprogram.chess.models.pieces.King;
 import com.nullprogram.chess.models.pieces.PieceFactory;
 
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.Arrays;
 
 /**
  * Board data structure.
@@ -14,14 +13,60 @@ import java.io.Serializable;
  * transaction. This allows undo() and copy(), which many other things depends
  * on, to work properly.
  */
-public abstract class Board implements Serializable {
+public abstract class Board implements Serializable, Cloneable {
 
 	/** Versioning for object serialization. */
 	@Serial
     private static final long serialVersionUID = 244162996302362607L;
 
-	/** The internal board array. */
-	private Piece[][] internalBoard;
+	/** Movement kind: slide along ranks and files. */
+	public static final int ORTHOGONAL = 1;
+
+	/** Movement kind: slide along diagonals. */
+	public static final int DIAGONAL = 2;
+
+	/** Movement kind: knight jumps. */
+	public static final int JUMP = 4;
+
+	/** Movement kind: single king steps. */
+	public static final int STEP = 8;
+
+	/**
+	 * Rows of padding above and below the board. Two rows keep knight jumps
+	 * in the array; one column each side is enough because a jump two files
+	 * off the edge wraps into the neighbouring row's padding column.
+	 */
+	private static final int PAD_ROWS = 2;
+
+	/** Initial depth of the packed move stack. */
+	private static final int MADE_CAPACITY = 16;
+
+	/** Both sides. */
+	private static final Side[] SIDES = Side.values();
+
+	/** Marker stored in the padding squares around the board. */
+	private static final Piece BORDER = new Border();
+
+	/**
+	 * The internal board array: a mailbox with a border of BORDER squares, so
+	 * that stepping off the board is detected by a single array load.
+	 */
+	private Piece[] internalBoard;
+
+	/** Distance between vertically adjacent squares in the mailbox. */
+	private int stride;
+
+	/** Mailbox offsets for orthogonal slides. */
+	private int[] orthOffsets;
+
+	/** Mailbox offsets for diagonal slides. */
+	private int[] diagOffsets;
+
+	/** On-board knight targets of each mailbox square. */
+	private int[][] jumpTargets;
+
+	/** On-board king neighbours of each mailbox square. */
+	private int[][] stepTargets;
 
 	/** The width of this game board. */
 	private int boardWidth;
@@ -30,13 +75,473 @@ public abstract class Board implements Serializable {
 	private int boardHeight;
 
 	/** Moves taken in this game so far. */
-	private final MoveList moves = new MoveList(this);
+	private MoveList moves = new MoveList(this);
+
+	/** Bitboard index of the pieces, or null if the board is too large. */
+	private Bitboards bitboards;
+
+	/**
+	 * Pieces on the board for each side, in no particular order. Each piece
+	 * records its slot, so removal swaps the last piece into the hole, and
+	 * undo puts it back exactly where it was.
+	 */
+	private Piece[][] livePieces;
+
+	/** Number of pieces in use in each live piece list. */
+	private int[] liveCount;
+
+	/** Square index of each side's king, or -1 if it has none. */
+	private int[] kingSquares;
+
+	/** Count of changes made to the squares, for cached position data. */
+	private int version;
+
+	/** Pin and check test for legal move generation, created on demand. */
+	private transient Legality legality;
+
+	/** Square index of each bitboard bit. */
+	private int[] bitSquares;
+
+	/** Bitboard bit of each square index, or -1 on the border. */
+	private int[] squareBits;
+
+	/** Scratch space for bitboard destinations. */
+	private transient int[] targetBits;
+
+	/** Scratch space for the moves allMoves() generates. */
+	private transient MoveBuffer generated;
+
+	/** Packed moves made with makeMove() and not yet taken back. */
+	private int[] made;
+
+	/** Piece captured by each packed move made. */
+	private Piece[] madeCaptured;
+
+	/** Pawn replaced by each packed promotion made. */
+	private Piece[] madePawns;
+
+	/**
+	 * Promoted piece last used at each depth of the packed move stack,
+	 * reused by the next promotion there so search does not allocate.
+	 */
+	private transient Piece[] madePromoted;
+
+	/** Number of packed moves made. */
+	private int madeCount;
+
+	/** Squares emptied while resolving an exchange. */
+	private transient int[] seeSquares;
+
+	/** Pieces lifted from those squares. */
+	private transient Piece[] seePieces;
+
+	/** Running material balance after each capture of an exchange. */
+	private transient double[] seeGain;
+
+	/** Zobrist keys for this board's size, fetched on demand. */
+	private transient Zobrist zobrist;
+
+	/** Zobrist key of the current position, kept up to date by every change. */
+	private long hash;
+
+	/** The part of the hash covering castling rights and en passant. */
+	private long stateHash;
 
 	/**
 	 * Create a new Piece array, effectively clearing the board.
 	 */
 	public final void clear() {
-		internalBoard = new Piece[boardWidth][boardHeight];
+		stride = boardWidth + 2;
+		internalBoard = new Piece[stride * (boardHeight + 2 * PAD_ROWS)];
+		Arrays.fill(internalBoard, BORDER);
+		for (int y = 0; y < boardHeight; y++) {
+			for (int x = 0; x < boardWidth; x++) {
+				internalBoard[index(x, y)] = null;
+			}
+		}
+		orthOffsets = new int[] {stride, -stride, 1, -1};
+		diagOffsets = new int[] {stride + 1, stride - 1, -stride + 1, -stride - 1};
+		int[] jumps = {2 * stride + 1, 2 * stride - 1, -2 * stride + 1, -2 * stride - 1, stride + 2, stride - 2,
+			-stride + 2, -stride - 2};
+		int[] steps = {stride, -stride, 1, -1, stride + 1, stride - 1, -stride + 1, -stride - 1};
+		jumpTargets = new int[internalBoard.length][];
+		stepTargets = new int[internalBoard.length][];
+		for (int y = 0; y < boardHeight; y++) {
+			for (int x = 0; x < boardWidth; x++) {
+				int sq = index(x, y);
+				jumpTargets[sq] = neighbours(sq, jumps);
+				stepTargets[sq] = neighbours(sq, steps);
+			}
+		}
+		bitboards = Bitboards.create(boardWidth, boardHeight);
+		livePieces = new Piece[2][boardWidth * boardHeight];
+		liveCount = new int[2];
+		kingSquares = new int[] {-1, -1};
+		version++;
+		legality = null;
+		if (internalBoard.length > PackedMove.MAX_SQUARE) {
+			throw new IllegalArgumentException("board too large: " + boardWidth + "x" + boardHeight);
+		}
+		bitSquares = new int[boardWidth * boardHeight];
+		squareBits = new int[internalBoard.length];
+		Arrays.fill(squareBits, -1);
+		for (int i = 0; i < bitSquares.length; i++) {
+			bitSquares[i] = index(i % boardWidth, i / boardWidth);
+			squareBits[bitSquares[i]] = i;
+		}
+		made = new int[MADE_CAPACITY];
+		madeCaptured = new Piece[MADE_CAPACITY];
+		madePawns = new Piece[MADE_CAPACITY];
+		madePromoted = new Piece[MADE_CAPACITY];
+		madeCount = 0;
+		zobrist = null;
+		hash = 0;
+		stateHash = 0;
+	}
+
+	/**
+	 * Mailbox index of a board coordinate.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return index into the mailbox
+	 */
+	private int index(final int x, final int y) {
+		return (y + PAD_ROWS) * stride + x + 1;
+	}
+
+	/**
+	 * List the on-board squares reached from a square by the given offsets.
+	 *
+	 * @param sq      origin mailbox index
+	 * @param offsets offsets to try
+	 * @return the reachable mailbox indexes
+	 */
+	private int[] neighbours(final int sq, final int[] offsets) {
+		int count = 0;
+		int[] found = new int[offsets.length];
+		for (int offset : offsets) {
+			if (internalBoard[sq + offset] != BORDER) {
+				found[count++] = sq + offset;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+	/**
+	 * Get the square index of a board coordinate.
+	 *
+	 * Square indexes are stable for the life of the board and can be used
+	 * with pieceAt() and the direction offsets in place of Position objects.
+	 *
+	 * @param x x coordinate
+	 * @param y y coordinate
+	 * @return the square index
+	 */
+	public final int squareOf(final int x, final int y) {
+		return index(x, y);
+	}
+
+	/**
+	 * Get the square index of a position.
+	 *
+	 * @param pos the position
+	 * @return the square index
+	 */
+	public final int squareOf(final Position pos) {
+		return index(pos.getX(), pos.getY());
+	}
+
+	/**
+	 * Get the x coordinate of a square index.
+	 *
+	 * @param sq the square index
+	 * @return the x coordinate
+	 */
+	public final int xOf(final int sq) {
+		return sq % stride - 1;
+	}
+
+	/**
+	 * Get the y coordinate of a square index.
+	 *
+	 * @param sq the square index
+	 * @return the y coordinate
+	 */
+	public final int yOf(final int sq) {
+		return sq / stride - PAD_ROWS;
+	}
+
+	/**
+	 * Get the shared Position for a square index.
+	 *
+	 * @param sq the square index
+	 * @return the position
+	 */
+	public final Position positionOf(final int sq) {
+		return Position.of(sq % stride - 1, sq / stride - PAD_ROWS);
+	}
+
+	/**
+	 * Get the piece on a square index.
+	 *
+	 * @param sq the square index, which must be on the board
+	 * @return the piece, or null if the square is empty
+	 */
+	public final Piece pieceAt(final int sq) {
+		return internalBoard[sq];
+	}
+
+	/**
+	 * Get the number of square indexes, including the border.
+	 *
+	 * @return one more than the largest square index
+	 */
+	final int squares() {
+		return internalBoard.length;
+	}
+
+	/**
+	 * Get the number of changes made to the squares so far. Anything derived
+	 * from the position is still valid while this is unchanged.
+	 *
+	 * @return the change count
+	 */
+	final int version() {
+		return version;
+	}
+
+	/**
+	 * Bitboard index of a square index.
+	 *
+	 * @param sq the square index
+	 * @return the bit index
+	 */
+	private int bit(final int sq) {
+		return squareBits[sq];
+	}
+
+	/**
+	 * Get the number of pieces a side has on the board.
+	 *
+	 * @param side the side
+	 * @return number of live pieces
+	 */
+	public final int pieceCount(final Side side) {
+		return liveCount[side.ordinal()];
+	}
+
+	/**
+	 * Get one of a side's pieces on the board.
+	 *
+	 * The order is arbitrary, but a move followed by its undo leaves it as it
+	 * was, so the list may be walked while moves are tried.
+	 *
+	 * @param side the side
+	 * @param i    index from 0 to pieceCount(side) - 1
+	 * @return the piece
+	 */
+	public final Piece piece(final Side side, final int i) {
+		return livePieces[side.ordinal()][i];
+	}
+
+	/**
+	 * Get the square index of a side's king.
+	 *
+	 * @param side whose king
+	 * @return the square index, or -1 if the side has no king
+	 */
+	public final int kingSquare(final Side side) {
+		return kingSquares[side.ordinal()];
+	}
+
+	/**
+	 * Determine if a square index is on the board.
+	 *
+	 * Any square reached from an on-board square by one direction offset or
+	 * one knight jump may be tested.
+	 *
+	 * @param sq the square index
+	 * @return true if the square is on the board
+	 */
+	public final boolean onBoard(final int sq) {
+		return internalBoard[sq] != BORDER;
+	}
+
+	/**
+	 * Determine if any piece of the given side attacks a square.
+	 *
+	 * Rather than generating the attacker's moves, this looks outward from
+	 * the target: knight jumps, pawn diagonals, the king ring, and each
+	 * sliding ray up to its first piece. Fairy pieces are covered through
+	 * their rook, bishop and knight components. Nothing is allocated.
+	 *
+	 * @param sq the square index
+	 * @param by the attacking side
+	 * @return true if the square is attacked
+	 */
+	public final boolean isSquareAttacked(final int sq, final Side by) {
+		if (bitboards != null) {
+			return bitboards.attacked(bit(sq), by);
+		}
+		int behind = by == Side.WHITE ? -stride : stride;
+		return isAttacker(internalBoard[sq + behind - 1], by, PieceType.PAWN)
+				|| isAttacker(internalBoard[sq + behind + 1], by, PieceType.PAWN) || isPieceAttacked(sq, by);
+	}
+
+	/**
+	 * Determine if any piece other than a pawn attacks a square.
+	 *
+	 * @param sq the square index
+	 * @param by the attacking side
+	 * @return true if the square is attacked
+	 */
+	private boolean isPieceAttacked(final int sq, final Side by) {
+		for (int from : jumpTargets[sq]) {
+			Piece p = internalBoard[from];
+			if (p != null && p.getSide() == by && p.getType().isJumper()) {
+				return true;
+			}
+		}
+		for (int from : stepTargets[sq]) {
+			if (isAttacker(internalBoard[from], by, PieceType.KING)) {
+				return true;
+			}
+		}
+		return rayAttacked(sq, by, orthOffsets, true) || rayAttacked(sq, by, diagOffsets, false);
+	}
+
+	/**
+	 * Determine if a square would be attacked were another square empty,
+	 * such as the square a king is stepping away from.
+	 *
+	 * @param sq    the square index
+	 * @param by    the attacking side
+	 * @param empty square to treat as empty
+	 * @return true if the square is attacked
+	 */
+	final boolean isSquareAttacked(final int sq, final Side by, final int empty) {
+		Piece p = internalBoard[empty];
+		if (p == null) {
+			return isSquareAttacked(sq, by);
+		}
+		internalBoard[empty] = null;
+		if (bitboards != null) {
+			bitboards.remove(bit(empty), p);
+		}
+		boolean attacked = isSquareAttacked(sq, by);
+		internalBoard[empty] = p;
+		if (bitboards != null) {
+			bitboards.add(bit(empty), p);
+		}
+		return attacked;
+	}
+
+	/**
+	 * Determine if a pseudo-legal move leaves the moving side's own king
+	 * unattacked.
+	 *
+	 * Pins and checks are worked out once per position, so most moves are
+	 * decided without being played.
+	 *
+	 * @param move the move
+	 * @return true if the move is legal
+	 */
+	public final boolean isLegal(final Move move) {
+		if (legality == null) {
+			legality = new Legality(this);
+		}
+		return legality.isLegal(move);
+	}
+
+	/**
+	 * Determine if a pseudo-legal packed move leaves the moving side's own
+	 * king unattacked.
+	 *
+	 * @param move the packed move
+	 * @return true if the move is legal
+	 */
+	public final boolean isLegal(final int move) {
+		if (legality == null) {
+			legality = new Legality(this);
+		}
+		return legality.isLegal(move);
+	}
+
+	/**
+	 * Determine if a piece is of the given side and type.
+	 *
+	 * @param p    the piece, possibly null or the border
+	 * @param by   wanted side
+	 * @param type wanted type
+	 * @return true if the piece matches
+	 */
+	private static boolean isAttacker(final Piece p, final Side by, final PieceType type) {
+		return p != null && p != BORDER && p.getType() == type && p.getSide() == by;
+	}
+
+	/**
+	 * Look along each ray from a square for a slider of the given side.
+	 *
+	 * @param sq         the square index
+	 * @param by         the attacking side
+	 * @param offsets    ray directions
+	 * @param orthogonal true for rook rays, false for bishop rays
+	 * @return true if a slider attacks along one of the rays
+	 */
+	private boolean rayAttacked(final int sq, final Side by, final int[] offsets, final boolean orthogonal) {
+		for (int offset : offsets) {
+			int to = sq + offset;
+			while (internalBoard[to] == null) {
+				to += offset;
+			}
+			Piece p = internalBoard[to];
+			if (p != BORDER && p.getSide() == by
+					&& (orthogonal ? p.getType().isOrthogonal() : p.getType().isDiagonal())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the mailbox offsets for one of the sliding movement kinds.
+	 *
+	 * @param kind ORTHOGONAL or DIAGONAL
+	 * @return the direction offsets
+	 */
+	public final int[] offsets(final int kind) {
+		if (kind == ORTHOGONAL) {
+			return orthOffsets;
+		} else if (kind == DIAGONAL) {
+			return diagOffsets;
+		}
+		throw new IllegalArgumentException("not a sliding kind: " + kind);
+	}
+
+	/**
+	 * Get the on-board squares reached from a square by a leaping kind.
+	 *
+	 * @param sq   the square index
+	 * @param kind JUMP or STEP
+	 * @return the neighbouring square indexes
+	 */
+	public final int[] neighbours(final int sq, final int kind) {
+		if (kind == JUMP) {
+			return jumpTargets[sq];
+		} else if (kind == STEP) {
+			return stepTargets[sq];
+		}
+		throw new IllegalArgumentException("not a leaping kind: " + kind);
+	}
+
+	/**
+	 * Get the bitboard index of this board's pieces.
+	 *
+	 * @return the bitboards, or null if the board is too large for them
+	 */
+	public final Bitboards getBitboards() {
+		return bitboards;
 	}
 
 	/**
@@ -97,17 +602,11 @@ public abstract class Board implements Serializable {
 	 * @return the king's board position
 	 */
 	public final Position findKing(final Side side) {
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				Position pos = new Position(x, y);
-				Piece p = getPiece(pos);
-				if (p instanceof King && p.getSide() == side) {
-
-					return pos;
-				}
-			}
+		int sq = kingSquares[side.ordinal()];
+		if (sq < 0) {
+			return null;
 		}
-		return null;
+		return positionOf(sq);
 	}
 
 	/**
@@ -154,116 +653,389 @@ public abstract class Board implements Serializable {
 	 * @param p the piece object to be placed
 	 */
 	public final void setPiece(final int x, final int y, final Piece p) {
-		setPiece(new Position(x, y), p);
+		setPiece(Position.of(x, y), p);
 	}
 
 	/**
 	 * Put the given Piece at the given Position on the board.
 	 *
+	 * Any piece already on the square is taken off. A piece that is already
+	 * elsewhere on this board is moved rather than duplicated.
+	 *
 	 * @param pos the position on the board
 	 * @param p   the piece object to be placed
 	 */
 	public final void setPiece(final Position pos, final Piece p) {
-		internalBoard[pos.getX()][pos.getY()] = p;
+		int sq = index(pos.getX(), pos.getY());
+		if (p != null && p.getBoard() == this && p.getPosition() != null && getPiece(p.getPosition()) == p) {
+			lift(squareOf(p.getPosition()));
+		}
+		lift(sq);
 		if (p != null) {
-			p.setPosition(pos);
-			p.setBoard(this);
+			place(sq, p);
 		}
+		rehashState();
 	}
 
 	/**
-	 * Get the Piece at the given Position.
+	 * Add a piece to an empty square and to the end of its side's list.
 	 *
-	 * @param pos the position on the board
-	 * @return the Piece at the position
+	 * @param sq the square index
+	 * @param p  the piece
 	 */
-	public final Piece getPiece(final Position pos) {
-		return internalBoard[pos.getX()][pos.getY()];
+	private void place(final int sq, final Piece p) {
+		int s = p.getSide().ordinal();
+		int n = liveCount[s]++;
+		livePieces[s][n] = p;
+		p.setSlot(n);
+		occupy(sq, p);
 	}
 
 	/**
-	 * Perform the given move action.
+	 * Take the piece off a square and out of its side's list.
 	 *
-	 * @param move the move
+	 * @param sq the square index
+	 * @return the piece that was there, or null
 	 */
-	public final void move(final Move move) {
-		moves.add(move);
-		execMove(move);
+	private Piece lift(final int sq) {
+		Piece p = vacate(sq);
+		if (p != null) {
+			Piece[] list = livePieces[p.getSide().ordinal()];
+			int n = --liveCount[p.getSide().ordinal()];
+			Piece last = list[n];
+			list[p.getSlot()] = last;
+			last.setSlot(p.getSlot());
+			list[n] = null;
+		}
+		return p;
 	}
 
 	/**
-	 * Actually execute the move.
+	 * Put a lifted piece back in the list slot it came from. This exactly
+	 * reverses lift() provided everything since has been reversed too.
 	 *
-	 * @param move the move
+	 * @param sq the square index
+	 * @param p  the piece
 	 */
-	private void execMove(final Move move) {
-		if (move == null) {
-			return;
-		}
-		Position a = move.getOrigin();
-		Position b = move.getDest();
-		if (a != null && b != null) {
-			move.setCaptured(getPiece(b));
-			setPiece(b, getPiece(a));
-			setPiece(a, null);
-			getPiece(b).setPosition(b);
-			getPiece(b).incMoved();
-		} else if (a != null && b == null) {
-			move.setCaptured(getPiece(a));
-			setPiece(a, null);
-		} else {
-			setPiece(b, PieceFactory.create(move.getReplacement(), move.getReplacementSide()));
+	private void restore(final int sq, final Piece p) {
+		int s = p.getSide().ordinal();
+		Piece[] list = livePieces[s];
+		int slot = p.getSlot();
+		int n = liveCount[s]++;
+		if (slot < n) {
+			list[n] = list[slot];
+			list[n].setSlot(n);
 		}
-		execMove(move.getNext());
+		list[slot] = p;
+		occupy(sq, p);
 	}
 
 	/**
-	 * Undo the last move.
+	 * Move a piece to an empty square, leaving the piece lists alone.
+	 *
+	 * @param from origin square index
+	 * @param to   destination square index
 	 */
-	public final void undo() {
-		execUndo(moves.pop());
+	private void shift(final int from, final int to) {
+		occupy(to, vacate(from));
 	}
 
 	/**
-	 * Actually perform the undo action.
+	 * Record a piece on an empty square.
 	 *
-	 * @param move the move
+	 * @param sq the square index
+	 * @param p  the piece
 	 */
-	private void execUndo(final Move move) {
-		if (move == null) {
-			return;
+	private void occupy(final int sq, final Piece p) {
+		version++;
+		hash ^= keys().piece(p, sq);
+		internalBoard[sq] = p;
+		if (bitboards != null) {
+			bitboards.add(bit(sq), p);
 		}
-		execUndo(move.getNext()); // undo in reverse
-		Position a = move.getOrigin();
-		Position b = move.getDest();
-		if (a != null && b != null) {
-			setPiece(a, getPiece(b));
-			setPiece(b, move.getCaptured());
-			getPiece(a).setPosition(a);
-			getPiece(a).decMoved();
-		} else if (a != null && b == null) {
-			setPiece(a, move.getCaptured());
-		} else {
-			setPiece(b, null);
+		if (p.getType() == PieceType.KING) {
+			kingSquares[p.getSide().ordinal()] = sq;
 		}
+		p.setPosition(positionOf(sq));
+		p.setBoard(this);
 	}
 
 	/**
-	 * Return the last move made.
+	 * Clear a square.
 	 *
-	 * @return the previous move
+	 * @param sq the square index
+	 * @return the piece that was there, or null
 	 */
-	public final Move last() {
-		return moves.peek();
+	private Piece vacate(final int sq) {
+		Piece p = internalBoard[sq];
+		if (p != null) {
+			version++;
+			hash ^= keys().piece(p, sq);
+			internalBoard[sq] = null;
+			if (bitboards != null) {
+				bitboards.remove(bit(sq), p);
+			}
+			if (p.getType() == PieceType.KING && kingSquares[p.getSide().ordinal()] == sq) {
+				kingSquares[p.getSide().ordinal()] = -1;
+			}
+		}
+		return p;
 	}
 
 	/**
-	 * Return true if position has no piece on it.
+	 * Get the Piece at the given Position.
 	 *
-	 * @param pos position to be tested
+	 * @param pos the position on the board
+	 * @return the Piece at the position, or null if empty or off the board
+	 */
+	public final Piece getPiece(final Position pos) {
+		if (!inRange(pos)) {
+			/* The border squares are the board's own business. */
+			return null;
+		}
+		return internalBoard[index(pos.getX(), pos.getY())];
+	}
+
+	/**
+	 * Append the moves of the given kinds for a piece to a move list.
+	 *
+	 * Destinations holding a friendly piece are skipped, and slides stop at
+	 * the first piece in the way. Bitboards are used when the board has them,
+	 * otherwise the mailbox is walked by square offset.
+	 *
+	 * @param p     the moving piece
+	 * @param kinds bitwise or of the movement kind constants
+	 * @param list  list to be appended to
+	 */
+	public final void addMoves(final Piece p, final int kinds, final MoveList list) {
+		if (bitboards != null) {
+			bitboards.addMoves(p, kinds, list);
+			return;
+		}
+		Position from = p.getPosition();
+		int sq = index(from.getX(), from.getY());
+		Side side = p.getSide();
+		if ((kinds & ORTHOGONAL) != 0) {
+			slide(from, sq, side, orthOffsets, list);
+		}
+		if ((kinds & DIAGONAL) != 0) {
+			slide(from, sq, side, diagOffsets, list);
+		}
+		if ((kinds & JUMP) != 0) {
+			step(from, side, jumpTargets[sq], list);
+		}
+		if ((kinds & STEP) != 0) {
+			step(from, side, stepTargets[sq], list);
+		}
+	}
+
+	/**
+	 * Count the moves of the given kinds a piece has, without checking them
+	 * for check.
+	 *
+	 * @param p     the piece
+	 * @param kinds bitwise or of the movement kind constants
+	 * @return number of destinations
+	 */
+	public final int countMoves(final Piece p, final int kinds) {
+		if (bitboards != null) {
+			return bitboards.countMoves(bitboards.bit(p.getPosition()), kinds, p.getSide());
+		}
+		int sq = squareOf(p.getPosition());
+		Side side = p.getSide();
+		int count = 0;
+		if ((kinds & ORTHOGONAL) != 0) {
+			count += reach(sq, side, orthOffsets);
+		}
+		if ((kinds & DIAGONAL) != 0) {
+			count += reach(sq, side, diagOffsets);
+		}
+		if ((kinds & JUMP) != 0) {
+			count += reach(side, jumpTargets[sq]);
+		}
+		if ((kinds & STEP) != 0) {
+			count += reach(side, stepTargets[sq]);
+		}
+		return count;
+	}
+
+	/**
+	 * Count the squares a slide reaches from a square.
+	 *
+	 * @param sq      origin square index
+	 * @param side    side of the moving piece
+	 * @param offsets direction offsets
+	 * @return the number of empty or enemy squares reached
+	 */
+	private int reach(final int sq, final Side side, final int[] offsets) {
+		int count = 0;
+		for (int offset : offsets) {
+			for (int to = sq + offset;; to += offset) {
+				Piece q = internalBoard[to];
+				if (q == null) {
+					count++;
+				} else {
+					if (q != BORDER && q.getSide() != side) {
+						count++;
+					}
+					break;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Count the given squares that are empty or hold an enemy.
+	 *
+	 * @param side    side of the moving piece
+	 * @param targets on-board squares
+	 * @return the number of squares
+	 */
+	private int reach(final Side side, final int[] targets) {
+		int count = 0;
+		for (int to : targets) {
+			Piece q = internalBoard[to];
+			if (q == null || q.getSide() != side) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Add the slides from a mailbox square along each offset.
+	 *
+	 * @param from    origin position
+	 * @param sq      origin mailbox index
+	 * @param side    side of the moving piece
+	 * @param offsets direction offsets
+	 * @param list    list to be appended to
+	 */
+	private void slide(final Position from, final int sq, final Side side, final int[] offsets,
+			final MoveList list) {
+		for (int offset : offsets) {
+			for (int to = sq + offset;; to += offset) {
+				Piece q = internalBoard[to];
+				if (q == null) {
+					list.addTarget(new Move(from, positionOf(to)));
+				} else {
+					if (q != BORDER && q.getSide() != side) {
+						list.addTarget(new Move(from, positionOf(to)));
+					}
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the single steps to each of the given neighbouring squares.
+	 *
+	 * @param from    origin position
+	 * @param side    side of the moving piece
+	 * @param targets on-board neighbour squares
+	 * @param list    list to be appended to
+	 */
+	private void step(final Position from, final Side side, final int[] targets, final MoveList list) {
+		for (int to : targets) {
+			Piece q = internalBoard[to];
+			if (q == null || q.getSide() != side) {
+				list.addTarget(new Move(from, positionOf(to)));
+			}
+		}
+	}
+
+	/**
+	 * Perform the given move action.
+	 *
+	 * @param move the move
+	 */
+	public final void move(final Move move) {
+		moves.add(move);
+		execMove(move);
+		hash ^= keys().black();
+		rehashState();
+	}
+
+	/**
+	 * Actually execute the move.
+	 *
+	 * @param move the move
+	 */
+	private void execMove(final Move move) {
+		if (move == null) {
+			return;
+		}
+		Position a = move.getOrigin();
+		Position b = move.getDest();
+		if (a != null && b != null) {
+			int to = squareOf(b);
+			move.setCaptured(lift(to));
+			shift(squareOf(a), to);
+			internalBoard[to].incMoved();
+		} else if (a != null && b == null) {
+			move.setCaptured(lift(squareOf(a)));
+		} else {
+			setPiece(b, PieceFactory.create(move.getReplacement(), move.getReplacementSide()));
+		}
+		execMove(move.getNext());
+	}
+
+	/**
+	 * Undo the last move.
+	 */
+	public final void undo() {
+		execUndo(moves.pop());
+		hash ^= keys().black();
+		rehashState();
+	}
+
+	/**
+	 * Actually perform the undo action.
+	 *
+	 * @param move the move
+	 */
+	private void execUndo(final Move move) {
+		if (move == null) {
+			return;
+		}
+		execUndo(move.getNext()); // undo in reverse
+		Position a = move.getOrigin();
+		Position b = move.getDest();
+		if (a != null && b != null) {
+			int from = squareOf(a);
+			int to = squareOf(b);
+			shift(to, from);
+			if (move.getCaptured() != null) {
+				restore(to, move.getCaptured());
+			}
+			internalBoard[from].decMoved();
+		} else if (a != null && b == null) {
+			if (move.getCaptured() != null) {
+				restore(squareOf(a), move.getCaptured());
+			}
+		} else {
+			lift(squareOf(b));
+		}
+	}
+
+	/**
+	 * Return the last move made.
+	 *
+	 * @return the previous move
+	 */
+	public final Move last() {
+		return moves.peek();
+	}
+
+	/**
+	 * Return true if position has no piece on it.
+	 *
+	 * @param pos position to be tested
 	 * @return emptiness of position
 	 */
-	public final Boolean isEmpty(final Position pos) {
+	public final boolean isEmpty(final Position pos) {
 		return getPiece(pos) == null;
 	}
 
@@ -274,7 +1046,7 @@ public abstract class Board implements Serializable {
 	 * @param side side of the piece wanting to move
 	 * @return emptiness of position
 	 */
-	public final Boolean isEmpty(final Position pos, final Side side) {
+	public final boolean isEmpty(final Position pos, final Side side) {
 		Piece p = getPiece(pos);
 		if (p == null) {
 			return true;
@@ -288,7 +1060,7 @@ public abstract class Board implements Serializable {
 	 * @param pos position to be tested
 	 * @return validity of position
 	 */
-	public final Boolean inRange(final Position pos) {
+	public final boolean inRange(final Position pos) {
 		return (pos.getX() >= 0) && (pos.getY() >= 0) && (pos.getX() < boardWidth) && (pos.getY() < boardHeight);
 	}
 
@@ -298,7 +1070,7 @@ public abstract class Board implements Serializable {
 	 * @param pos position to be tested
 	 * @return validity of position
 	 */
-	public final Boolean isFree(final Position pos) {
+	public final boolean isFree(final Position pos) {
 		return inRange(pos) && isEmpty(pos);
 	}
 
@@ -309,19 +1081,62 @@ public abstract class Board implements Serializable {
 	 * @param side side of the piece wanting to move
 	 * @return validity of position
 	 */
-	public final Boolean isFree(final Position pos, final Side side) {
+	public final boolean isFree(final Position pos, final Side side) {
 		return inRange(pos) && isEmpty(pos, side);
 	}
 
 	/**
 	 * Copy this board.
 	 *
+	 * The squares, pieces and history are copied directly rather than by
+	 * replaying the game. The square geometry tables never change after
+	 * clear(), so they are shared. Packed moves must all be taken back first.
+	 *
 	 * @return deep copy of the board.
 	 */
 	public final Board copy() {
-		Board fresh = BoardFactory.create(this.getClass());
+		if (madeCount > 0) {
+			throw new IllegalStateException("packed moves still made");
+		}
+		Board fresh;
+		try {
+			fresh = (Board) clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		fresh.internalBoard = internalBoard.clone();
+		fresh.bitboards = bitboards == null ? null : bitboards.copy();
+		fresh.livePieces = new Piece[][] {livePieces[0].clone(), livePieces[1].clone()};
+		fresh.liveCount = liveCount.clone();
+		fresh.kingSquares = kingSquares.clone();
+		fresh.legality = null;
+		fresh.targetBits = null;
+		fresh.generated = null;
+		fresh.made = new int[MADE_CAPACITY];
+		fresh.madeCaptured = new Piece[MADE_CAPACITY];
+		fresh.madePawns = new Piece[MADE_CAPACITY];
+		fresh.madePromoted = null;
+		fresh.seeSquares = null;
+		fresh.seePieces = null;
+		fresh.seeGain = null;
+		for (int s = 0; s < liveCount.length; s++) {
+			for (int i = 0; i < liveCount[s]; i++) {
+				Piece p = livePieces[s][i].copy();
+				p.setBoard(fresh);
+				fresh.livePieces[s][i] = p;
+				fresh.internalBoard[squareOf(p.getPosition())] = p;
+			}
+		}
+		fresh.moves = new MoveList(fresh);
 		for (Move move : moves) {
-			fresh.move(new Move(move));
+			Move copy = new Move(move);
+			for (Move m = copy; m != null; m = m.getNext()) {
+				if (m.getCaptured() != null) {
+					m.setCaptured(m.getCaptured().copy());
+					m.getCaptured().setBoard(fresh);
+				}
+			}
+			fresh.moves.add(copy);
 		}
 		return fresh;
 	}
@@ -329,21 +1144,826 @@ public abstract class Board implements Serializable {
 	/**
 	 * Generate a list of all moves for the given side.
 	 *
+	 * The moves are generated packed and only built into Move objects when
+	 * the list is first read, so asking for the count or a destination
+	 * builds none.
+	 *
 	 * @param side  side to get moves for
 	 * @param check check for check
 	 * @return list of all moves
 	 */
 	public final MoveList allMoves(final Side side, final boolean check) {
-		MoveList list = new MoveList(this, false);
-		for (int y = 0; y < boardHeight; y++) {
-			for (int x = 0; x < boardWidth; x++) {
-				Piece p = internalBoard[x][y];
-				if (p != null && p.getSide() == side) {
-					list.addAll(p.getMoves(check));
+		if (generated == null) {
+			generated = new MoveBuffer();
+		}
+		generated.clear();
+		generate(side, check, generated);
+		return new MoveList(this, side, generated.toArray());
+	}
+
+	/**
+	 * Generate the moves of a side as packed moves (see PackedMove).
+	 *
+	 * This produces the same moves as allMoves(), without creating any
+	 * objects. Castling is only offered when the king lands strictly between
+	 * its square and the rook's.
+	 *
+	 * @param side  side to get moves for
+	 * @param check true for legal moves only, false for pseudo-legal moves
+	 * @param out   buffer the moves are appended to
+	 */
+	public final void generate(final Side side, final boolean check, final MoveBuffer out) {
+		if (targetBits == null) {
+			targetBits = new int[boardWidth * boardHeight];
+		}
+		int passant = passantSquare(side);
+		if (bitboards != null) {
+			pawnSets(side, passant, check, out);
+			pieceSets(side, check, out);
+			return;
+		}
+		int s = side.ordinal();
+		Piece[] live = livePieces[s];
+		for (int i = 0; i < liveCount[s]; i++) {
+			Piece p = live[i];
+			int from = squareOf(p.getPosition());
+			PieceType type = p.getType();
+			if (type == PieceType.PAWN) {
+				pawnMoves(p, from, passant, check, out);
+				continue;
+			}
+			int kinds = type.getKinds();
+			if ((kinds & ORTHOGONAL) != 0) {
+				slide(from, side, type, orthOffsets, check, out);
+			}
+			if ((kinds & DIAGONAL) != 0) {
+				slide(from, side, type, diagOffsets, check, out);
+			}
+			if ((kinds & JUMP) != 0) {
+				step(from, side, type, jumpTargets[from], check, out);
+			}
+			if ((kinds & STEP) != 0) {
+				step(from, side, type, stepTargets[from], check, out);
+			}
+			if (type == PieceType.KING && check && !p.moved()) {
+				castles(p, from, out);
+			}
+		}
+	}
+
+	/**
+	 * Append the packed moves of all of a side's pieces other than pawns,
+	 * taking them from the bitboards in one pass and then, when checking,
+	 * dropping the illegal ones in place.
+	 *
+	 * @param side  side to get moves for
+	 * @param check true to test for legality
+	 * @param out   buffer to append to
+	 */
+	private void pieceSets(final Side side, final boolean check, final MoveBuffer out) {
+		int start = out.size();
+		bitboards.pieceMoves(side, bitSquares, out);
+		if (!check) {
+			return;
+		}
+		int end = out.size();
+		int kept = start;
+		for (int i = start; i < end; i++) {
+			if (isLegal(out.get(i))) {
+				out.set(kept++, out.get(i));
+			}
+		}
+		out.truncate(kept);
+		int king = kingSquares[side.ordinal()];
+		if (king >= 0 && !internalBoard[king].moved()) {
+			castles(internalBoard[king], king, out);
+		}
+	}
+
+	/**
+	 * Append a packed move, if it is legal or legality is not wanted.
+	 *
+	 * @param from     origin square index
+	 * @param to       destination square index
+	 * @param type     type of the moving piece
+	 * @param kind     kind of packed move
+	 * @param promoted type promoted to, or null
+	 * @param check    true to test for legality
+	 * @param out      buffer to append to
+	 */
+	private void emit(final int from, final int to, final PieceType type, final int kind,
+			final PieceType promoted, final boolean check, final MoveBuffer out) {
+		Piece c = internalBoard[to];
+		int move = PackedMove.of(from, to, type, c == null ? null : c.getType(), kind, promoted);
+		if (!check || isLegal(move)) {
+			out.add(move);
+		}
+	}
+
+	/**
+	 * Append the packed slides from a square along each offset.
+	 *
+	 * @param from    origin square index
+	 * @param side    side of the moving piece
+	 * @param type    type of the moving piece
+	 * @param offsets direction offsets
+	 * @param check   true to test for legality
+	 * @param out     buffer to append to
+	 */
+	private void slide(final int from, final Side side, final PieceType type, final int[] offsets,
+			final boolean check, final MoveBuffer out) {
+		for (int offset : offsets) {
+			for (int to = from + offset;; to += offset) {
+				Piece q = internalBoard[to];
+				if (q == null) {
+					emit(from, to, type, PackedMove.NORMAL, null, check, out);
+				} else {
+					if (q != BORDER && q.getSide() != side) {
+						emit(from, to, type, PackedMove.NORMAL, null, check, out);
+					}
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Append the packed single steps to each of the given squares.
+	 *
+	 * @param from    origin square index
+	 * @param side    side of the moving piece
+	 * @param type    type of the moving piece
+	 * @param targets on-board neighbour squares
+	 * @param check   true to test for legality
+	 * @param out     buffer to append to
+	 */
+	private void step(final int from, final Side side, final PieceType type, final int[] targets,
+			final boolean check, final MoveBuffer out) {
+		for (int to : targets) {
+			Piece q = internalBoard[to];
+			if (q == null || q.getSide() != side) {
+				emit(from, to, type, PackedMove.NORMAL, null, check, out);
+			}
+		}
+	}
+
+	/**
+	 * Append the packed moves of a pawn: pushes, a double push if it has
+	 * never moved, diagonal captures and en passant. Reaching the far row
+	 * (other than by a double push) promotes to a queen.
+	 *
+	 * @param p       the pawn
+	 * @param from    its square index
+	 * @param passant square open to capture en passant, or -1
+	 * @param check   true to test for legality
+	 * @param out     buffer to append to
+	 */
+	private void pawnMoves(final Piece p, final int from, final int passant, final boolean check,
+			final MoveBuffer out) {
+		Side side = p.getSide();
+		int ahead = side == Side.WHITE ? stride : -stride;
+		int one = from + ahead;
+		if (internalBoard[one] == null) {
+			pawnStep(from, one, side, check, out);
+			if (!p.moved() && internalBoard[one + ahead] == null) {
+				emit(from, one + ahead, PieceType.PAWN, PackedMove.NORMAL, null, check, out);
+			}
+		}
+		for (int to = one - 1; to <= one + 1; to += 2) {
+			Piece q = internalBoard[to];
+			if (q != null && q != BORDER && q.getSide() != side) {
+				pawnStep(from, to, side, check, out);
+			}
+		}
+		if (passant == one - 1 || passant == one + 1) {
+			emit(from, passant, PieceType.PAWN, PackedMove.EN_PASSANT, null, check, out);
+		}
+	}
+
+	/**
+	 * Append the packed moves of all of a side's pawns, the same as
+	 * pawnMoves() would for each, taking the pushes and captures of every
+	 * pawn at once from the bitboards.
+	 *
+	 * @param side    side of the pawns
+	 * @param passant square open to capture en passant, or -1
+	 * @param check   true to test for legality
+	 * @param out     buffer to append to
+	 */
+	private void pawnSets(final Side side, final int passant, final boolean check, final MoveBuffer out) {
+		int ahead = side == Side.WHITE ? stride : -stride;
+		int n = bitboards.pawnTargets(side, 0, targetBits);
+		for (int j = 0; j < n; j++) {
+			int to = bitSquares[targetBits[j]];
+			int from = to - ahead;
+			pawnStep(from, to, side, check, out);
+			if (!internalBoard[from].moved() && internalBoard[to + ahead] == null) {
+				emit(from, to + ahead, PieceType.PAWN, PackedMove.NORMAL, null, check, out);
+			}
+		}
+		for (int dx = -1; dx <= 1; dx += 2) {
+			n = bitboards.pawnTargets(side, dx, targetBits);
+			for (int j = 0; j < n; j++) {
+				int to = bitSquares[targetBits[j]];
+				pawnStep(to - ahead - dx, to, side, check, out);
+			}
+		}
+		if (passant >= 0) {
+			for (int from = passant - ahead - 1; from <= passant - ahead + 1; from += 2) {
+				if (isAttacker(internalBoard[from], side, PieceType.PAWN)) {
+					emit(from, passant, PieceType.PAWN, PackedMove.EN_PASSANT, null, check, out);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the square a side's pawns could capture en passant onto: the one
+	 * an enemy pawn passed over with a double push on the last move. It is
+	 * looked up once per generation rather than once per pawn.
+	 *
+	 * @param side side of the capturing pawns
+	 * @return the square index, or -1 if there is none
+	 */
+	private int passantSquare(final Side side) {
+		int ahead = side == Side.WHITE ? stride : -stride;
+		int lastFrom;
+		int lastTo;
+		if (madeCount > 0) {
+			lastFrom = PackedMove.from(made[madeCount - 1]);
+			lastTo = PackedMove.to(made[madeCount - 1]);
+		} else {
+			Move last = moves.peek();
+			if (last == null || last.getOrigin() == null || last.getDest() == null) {
+				return -1;
+			}
+			lastFrom = squareOf(last.getOrigin());
+			lastTo = squareOf(last.getDest());
+		}
+		if (lastFrom == lastTo + 2 * ahead && internalBoard[lastTo] != null
+				&& internalBoard[lastTo].getType() == PieceType.PAWN && internalBoard[lastTo + ahead] == null) {
+			return lastTo + ahead;
+		}
+		return -1;
+	}
+
+	/**
+	 * Append a single pawn step or capture, promoting on the far row.
+	 *
+	 * @param from  origin square index
+	 * @param to    destination square index
+	 * @param side  side of the pawn
+	 * @param check true to test for legality
+	 * @param out   buffer to append to
+	 */
+	private void pawnStep(final int from, final int to, final Side side, final boolean check,
+			final MoveBuffer out) {
+		int far = index(0, side == Side.WHITE ? boardHeight - 1 : 0);
+		if (to >= far && to < far + boardWidth) {
+			emit(from, to, PieceType.PAWN, PackedMove.PROMOTION, PieceType.QUEEN, check, out);
+		} else {
+			emit(from, to, PieceType.PAWN, PackedMove.NORMAL, null, check, out);
+		}
+	}
+
+	/**
+	 * Append the packed castling moves of an unmoved king.
+	 *
+	 * The rules are those of King: an unmoved piece in the corner, an empty
+	 * path to it that no enemy move could land on, and no check. The king
+	 * travels width / 2 - 2 squares and the corner piece lands beside it.
+	 *
+	 * @param king the king
+	 * @param from its square index
+	 * @param out  buffer to append to
+	 */
+	private void castles(final Piece king, final int from, final MoveBuffer out) {
+		int dist = boardWidth / 2 - 2;
+		int x = xOf(from);
+		Side enemy = Piece.opposite(king.getSide());
+		boolean inCheck = false;
+		boolean checked = false;
+		for (int dir = -1; dir <= 1; dir += 2) {
+			int max = dir < 0 ? 0 : boardWidth - 1;
+			int corner = squareOf(max, yOf(from));
+			Piece rook = internalBoard[corner];
+			int to = from + dir * dist;
+			if (rook == null || rook.moved() || dist < 1 || (max - (x + dir * dist)) * dir <= 0) {
+				continue;
+			}
+			boolean clear = true;
+			for (int sq = from + dir; clear && sq != corner; sq += dir) {
+				clear = internalBoard[sq] == null && !isDestination(sq, enemy);
+			}
+			if (clear && !checked) {
+				inCheck = check(king.getSide());
+				checked = true;
+			}
+			if (clear && !inCheck) {
+				out.add(PackedMove.of(from, to, PieceType.KING, null, PackedMove.CASTLE, null));
+			}
+		}
+	}
+
+	/**
+	 * Determine if any pseudo-legal move of a side ends on an empty square.
+	 *
+	 * Unlike an attack test, pawns count by their pushes and en passant
+	 * rather than their diagonal captures, since only a capture may move
+	 * diagonally and the square is empty.
+	 *
+	 * @param sq an empty square index
+	 * @param by the moving side
+	 * @return true if a move of that side lands on the square
+	 */
+	private boolean isDestination(final int sq, final Side by) {
+		int ahead = by == Side.WHITE ? stride : -stride;
+		Piece behind = internalBoard[sq - ahead];
+		if (isAttacker(behind, by, PieceType.PAWN)) {
+			return true;
+		}
+		Piece start = internalBoard[sq - 2 * ahead];
+		if (behind == null && isAttacker(start, by, PieceType.PAWN) && !start.moved()) {
+			return true;
+		}
+		if (madeCount > 0 || moves.peek() != null) {
+			int lastFrom;
+			int lastTo;
+			if (madeCount > 0) {
+				lastFrom = PackedMove.from(made[madeCount - 1]);
+				lastTo = PackedMove.to(made[madeCount - 1]);
+			} else {
+				Move last = moves.peek();
+				lastFrom = last.getOrigin() == null ? -1 : squareOf(last.getOrigin());
+				lastTo = last.getDest() == null ? -1 : squareOf(last.getDest());
+			}
+			if (sq == lastTo + ahead && lastFrom == lastTo + 2 * ahead && internalBoard[lastTo] != null
+					&& internalBoard[lastTo].getType() == PieceType.PAWN
+					&& (isAttacker(internalBoard[lastTo - 1], by, PieceType.PAWN)
+							|| isAttacker(internalBoard[lastTo + 1], by, PieceType.PAWN))) {
+				return true;
+			}
+		}
+		return isPieceAttacked(sq, by);
+	}
+
+	/**
+	 * Play a packed move. It must be taken back with unmakeMove() before any
+	 * Move is played or undone, and it is not recorded in the game history.
+	 *
+	 * @param move the packed move
+	 */
+	public final void makeMove(final int move) {
+		if (madeCount == made.length) {
+			reserve(madeCount);
+		}
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		Piece captured = null;
+		Piece pawn = null;
+		switch (PackedMove.kind(move)) {
+		case PackedMove.CASTLE:
+			int dir = to > from ? 1 : -1;
+			int corner = squareOf(dir < 0 ? 0 : boardWidth - 1, yOf(from));
+			shift(from, to);
+			internalBoard[to].incMoved();
+			shift(corner, to - dir);
+			internalBoard[to - dir].incMoved();
+			break;
+		case PackedMove.EN_PASSANT:
+			shift(from, to);
+			internalBoard[to].incMoved();
+			captured = lift(from + xOf(to) - xOf(from));
+			break;
+		default:
+			captured = lift(to);
+			shift(from, to);
+			internalBoard[to].incMoved();
+			if (PackedMove.kind(move) == PackedMove.PROMOTION) {
+				pawn = lift(to);
+				place(to, promoted(PackedMove.promoted(move), pawn.getSide()));
+			}
+			break;
+		}
+		made[madeCount] = move;
+		madeCaptured[madeCount] = captured;
+		madePawns[madeCount] = pawn;
+		madeCount++;
+		hash ^= keys().black();
+		rehashState();
+	}
+
+	/**
+	 * Pass the turn without moving, as null-move pruning needs. Like a
+	 * packed move, it is taken back with unmakeMove(), and it ends any
+	 * chance of an en passant capture.
+	 */
+	public final void makeNullMove() {
+		if (madeCount == made.length) {
+			reserve(madeCount);
+		}
+		made[madeCount] = PackedMove.NONE;
+		madeCount++;
+		hash ^= keys().black();
+		rehashState();
+	}
+
+	/**
+	 * Get the number of packed moves made and not yet taken back, null
+	 * moves included.
+	 *
+	 * @return moves made since the board was created or copied
+	 */
+	public final int madeCount() {
+		return madeCount;
+	}
+
+	/**
+	 * Get a packed move made and not yet taken back.
+	 *
+	 * @param i index of the move, 0 for the first made
+	 * @return the packed move, or PackedMove.NONE for a null move
+	 */
+	public final int made(final int i) {
+		return made[i];
+	}
+
+	/**
+	 * Make room for a number of packed moves beyond those already made, so
+	 * that making them does not allocate.
+	 *
+	 * @param plies number of further moves
+	 */
+	public final void reserve(final int plies) {
+		int size = madeCount + plies;
+		if (size > made.length) {
+			made = Arrays.copyOf(made, size);
+			madeCaptured = Arrays.copyOf(madeCaptured, size);
+			madePawns = Arrays.copyOf(madePawns, size);
+		}
+		if (madePromoted == null) {
+			madePromoted = new Piece[made.length];
+		} else if (madePromoted.length < made.length) {
+			madePromoted = Arrays.copyOf(madePromoted, made.length);
+		}
+	}
+
+	/**
+	 * Get the piece a pawn promotes into at the current stack depth,
+	 * reusing the one made last time if it fits.
+	 *
+	 * @param type the type promoted to
+	 * @param side side of the pawn
+	 * @return a piece not on any board
+	 */
+	private Piece promoted(final PieceType type, final Side side) {
+		if (madePromoted == null) {
+			reserve(0);
+		}
+		Piece p = madePromoted[madeCount];
+		if (p == null || p.getType() != type || p.getSide() != side) {
+			p = PieceFactory.create(type, side);
+			madePromoted[madeCount] = p;
+		}
+		return p;
+	}
+
+	/**
+	 * Take back the last packed move made with makeMove().
+	 */
+	public final void unmakeMove() {
+		madeCount--;
+		int move = made[madeCount];
+		if (move == PackedMove.NONE) {
+			hash ^= keys().black();
+			rehashState();
+			return;
+		}
+		Piece captured = madeCaptured[madeCount];
+		Piece pawn = madePawns[madeCount];
+		madeCaptured[madeCount] = null;
+		madePawns[madeCount] = null;
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		switch (PackedMove.kind(move)) {
+		case PackedMove.CASTLE:
+			int dir = to > from ? 1 : -1;
+			int corner = squareOf(dir < 0 ? 0 : boardWidth - 1, yOf(from));
+			shift(to - dir, corner);
+			internalBoard[corner].decMoved();
+			shift(to, from);
+			internalBoard[from].decMoved();
+			break;
+		case PackedMove.EN_PASSANT:
+			restore(from + xOf(to) - xOf(from), captured);
+			shift(to, from);
+			internalBoard[from].decMoved();
+			break;
+		default:
+			if (pawn != null) {
+				lift(to);
+				restore(to, pawn);
+			}
+			shift(to, from);
+			internalBoard[from].decMoved();
+			if (captured != null) {
+				restore(to, captured);
+			}
+			break;
+		}
+		hash ^= keys().black();
+		rehashState();
+	}
+
+	/**
+	 * Work out the material a capture wins or loses once every piece that
+	 * can take part in the exchange on the destination has done so (static
+	 * exchange evaluation).
+	 *
+	 * Each side recaptures with its least valuable attacker, and may stop
+	 * whenever carrying on would lose more. Attackers are found by looking
+	 * outward from the square as in isSquareAttacked(), on a board with the
+	 * pieces already used lifted off, so sliders lined up behind them join
+	 * in as x-rays. Fairy pieces attack through their rook, bishop and
+	 * knight components. A king only recaptures if the square is no longer
+	 * defended. Pins are ignored, and only the first move may promote.
+	 *
+	 * @param move   the packed move, normally a capture
+	 * @param values value of each piece type, by ordinal
+	 * @return material won by the moving side, negative if it loses
+	 */
+	public final double see(final int move, final double[] values) {
+		if (seeGain == null) {
+			int n = boardWidth * boardHeight + 1;
+			seeSquares = new int[n];
+			seePieces = new Piece[n];
+			seeGain = new double[n];
+		}
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		Side by = internalBoard[from].getSide();
+		int lifted = 0;
+		double gain = 0;
+		if (PackedMove.kind(move) == PackedMove.EN_PASSANT) {
+			int sq = from + xOf(to) - xOf(from);
+			seeSquares[lifted] = sq;
+			seePieces[lifted++] = internalBoard[sq];
+			internalBoard[sq] = null;
+			gain = values[PieceType.PAWN.ordinal()];
+		} else if (PackedMove.captured(move) != null) {
+			gain = values[PackedMove.captured(move).ordinal()];
+		}
+		double attacker = values[PackedMove.moved(move).ordinal()];
+		if (PackedMove.kind(move) == PackedMove.PROMOTION) {
+			attacker = values[PackedMove.promoted(move).ordinal()];
+			gain += attacker - values[PieceType.PAWN.ordinal()];
+		}
+		seeGain[0] = gain;
+		seeSquares[lifted] = from;
+		seePieces[lifted++] = internalBoard[from];
+		internalBoard[from] = null;
+
+		int d = 0;
+		Side s = Piece.opposite(by);
+		for (int sq = leastAttacker(to, s, values); sq >= 0; sq = leastAttacker(to, s, values)) {
+			Piece p = internalBoard[sq];
+			if (p.getType() == PieceType.KING && leastAttacker(to, Piece.opposite(s), values) >= 0) {
+				break;
+			}
+			d++;
+			seeGain[d] = attacker - seeGain[d - 1];
+			attacker = values[p.getType().ordinal()];
+			seeSquares[lifted] = sq;
+			seePieces[lifted++] = p;
+			internalBoard[sq] = null;
+			s = Piece.opposite(s);
+		}
+		while (lifted > 0) {
+			lifted--;
+			internalBoard[seeSquares[lifted]] = seePieces[lifted];
+			seePieces[lifted] = null;
+		}
+		for (; d > 0; d--) {
+			seeGain[d - 1] = -Math.max(-seeGain[d - 1], seeGain[d]);
+		}
+		return seeGain[0];
+	}
+
+	/**
+	 * Find the least valuable piece of a side attacking a square.
+	 *
+	 * @param sq     the square index
+	 * @param by     the attacking side
+	 * @param values value of each piece type, by ordinal
+	 * @return the attacker's square index, or -1 if there is none
+	 */
+	private int leastAttacker(final int sq, final Side by, final double[] values) {
+		int behind = by == Side.WHITE ? -stride : stride;
+		int best = -1;
+		for (int from = sq + behind - 1; from <= sq + behind + 1; from += 2) {
+			best = cheaper(from, best, by, values, isAttacker(internalBoard[from], by, PieceType.PAWN));
+		}
+		for (int from : jumpTargets[sq]) {
+			Piece p = internalBoard[from];
+			best = cheaper(from, best, by, values, p != null && p.getType().isJumper());
+		}
+		for (int from : stepTargets[sq]) {
+			best = cheaper(from, best, by, values, isAttacker(internalBoard[from], by, PieceType.KING));
+		}
+		for (int offset : orthOffsets) {
+			int from = sq + offset;
+			while (internalBoard[from] == null) {
+				from += offset;
+			}
+			Piece p = internalBoard[from];
+			best = cheaper(from, best, by, values, p != BORDER && p.getType().isOrthogonal());
+		}
+		for (int offset : diagOffsets) {
+			int from = sq + offset;
+			while (internalBoard[from] == null) {
+				from += offset;
+			}
+			Piece p = internalBoard[from];
+			best = cheaper(from, best, by, values, p != BORDER && p.getType().isDiagonal());
+		}
+		return best;
+	}
+
+	/**
+	 * Pick the cheaper of an attacker candidate and the best found so far.
+	 *
+	 * @param sq      candidate square index
+	 * @param best    best attacker square so far, or -1
+	 * @param by      the attacking side
+	 * @param values  value of each piece type, by ordinal
+	 * @param attacks whether the candidate's piece attacks the square
+	 * @return the cheaper attacker's square, or best if the candidate is not one
+	 */
+	private int cheaper(final int sq, final int best, final Side by, final double[] values,
+			final boolean attacks) {
+		if (!attacks || internalBoard[sq].getSide() != by) {
+			return best;
+		}
+		if (best >= 0 && values[internalBoard[best].getType().ordinal()]
+				<= values[internalBoard[sq].getType().ordinal()]) {
+			return best;
+		}
+		return sq;
+	}
+
+	/**
+	 * Get the Zobrist key of the current position.
+	 *
+	 * This covers the pieces on each square, the side to move, each side's
+	 * castling rights and any pawn that can be taken en passant. White is
+	 * taken to move first, so the side to move follows from the number of
+	 * moves made on this board.
+	 *
+	 * @return the 64-bit key
+	 */
+	public final long hash() {
+		return hash;
+	}
+
+	/**
+	 * Compute the Zobrist key from scratch. This always equals hash(),
+	 * which is kept up to date incrementally, and exists to check that.
+	 *
+	 * @return the 64-bit key
+	 */
+	public final long computeHash() {
+		long key = 0;
+		for (int s = 0; s < liveCount.length; s++) {
+			for (int i = 0; i < liveCount[s]; i++) {
+				Piece p = livePieces[s][i];
+				key ^= keys().piece(p, squareOf(p.getPosition()));
+			}
+		}
+		if ((moves.size() + madeCount) % 2 != 0) {
+			key ^= keys().black();
+		}
+		return key ^ stateKey();
+	}
+
+	/**
+	 * Get the Zobrist keys, fetching them again after deserialization.
+	 *
+	 * @return the keys for this board's size
+	 */
+	private Zobrist keys() {
+		if (zobrist == null) {
+			zobrist = Zobrist.get(internalBoard.length);
+		}
+		return zobrist;
+	}
+
+	/**
+	 * Replace the castling and en passant part of the hash after a change.
+	 */
+	private void rehashState() {
+		long key = stateKey();
+		hash ^= stateHash ^ key;
+		stateHash = key;
+	}
+
+	/**
+	 * Compute the castling and en passant part of the hash.
+	 *
+	 * A side may castle towards a corner while its king and the piece in
+	 * that corner have never moved. A pawn can be taken en passant when it
+	 * has just advanced two squares next to an enemy pawn and the square it
+	 * passed over is still empty.
+	 *
+	 * @return the key
+	 */
+	private long stateKey() {
+		long key = 0;
+		for (Side side : SIDES) {
+			int k = kingSquares[side.ordinal()];
+			if (k >= 0 && !internalBoard[k].moved()) {
+				int y = yOf(k);
+				int rights = 0;
+				Piece left = internalBoard[squareOf(0, y)];
+				Piece right = internalBoard[squareOf(boardWidth - 1, y)];
+				if (left != null && !left.moved()) {
+					rights |= 1;
+				}
+				if (right != null && !right.moved()) {
+					rights |= 2;
 				}
+				key ^= keys().castling(side, rights);
+			}
+		}
+		int lastFrom;
+		int lastTo;
+		if (madeCount > 0) {
+			lastFrom = PackedMove.from(made[madeCount - 1]);
+			lastTo = PackedMove.to(made[madeCount - 1]);
+		} else {
+			Move last = moves.peek();
+			if (last == null || last.getOrigin() == null || last.getDest() == null) {
+				return key;
+			}
+			lastFrom = squareOf(last.getOrigin());
+			lastTo = squareOf(last.getDest());
+		}
+		int ahead = (lastFrom - lastTo) / 2;
+		if ((ahead == stride || ahead == -stride) && lastFrom - lastTo == 2 * ahead
+				&& internalBoard[lastTo] != null && internalBoard[lastTo].getType() == PieceType.PAWN
+				&& internalBoard[lastTo + ahead] == null) {
+			Side by = ahead == stride ? Side.WHITE : Side.BLACK;
+			if (isAttacker(internalBoard[lastTo - 1], by, PieceType.PAWN)
+					|| isAttacker(internalBoard[lastTo + 1], by, PieceType.PAWN)) {
+				key ^= keys().passant(lastTo);
 			}
 		}
-		return list;
+		return key;
+	}
+
+	/**
+	 * Build the Move equivalent to a packed move, as allMoves() would have
+	 * produced it.
+	 *
+	 * @param move the packed move
+	 * @return the move
+	 */
+	public final Move toMove(final int move) {
+		return toMove(move, internalBoard[PackedMove.from(move)].getSide());
+	}
+
+	/**
+	 * Build the Move equivalent to a packed move of a side. Unlike
+	 * toMove(int), this does not look at the board, so the move need not
+	 * be playable in the current position.
+	 *
+	 * @param move the packed move
+	 * @param side side making the move
+	 * @return the move
+	 */
+	final Move toMove(final int move, final Side side) {
+		int from = PackedMove.from(move);
+		int to = PackedMove.to(move);
+		Move result = new Move(positionOf(from), positionOf(to));
+		switch (PackedMove.kind(move)) {
+		case PackedMove.CASTLE:
+			int dir = to > from ? 1 : -1;
+			int corner = squareOf(dir < 0 ? 0 : boardWidth - 1, yOf(from));
+			result.setNext(new Move(positionOf(corner), positionOf(to - dir)));
+			break;
+		case PackedMove.EN_PASSANT:
+			result.setNext(new Move(positionOf(from + xOf(to) - xOf(from)), null));
+			break;
+		case PackedMove.PROMOTION:
+			result.setNext(new Move(positionOf(to), null));
+			Move upgrade = new Move(null, positionOf(to));
+			upgrade.setReplacement(PackedMove.promoted(move).getName());
+			upgrade.setReplacementSide(side);
+			result.getNext().setNext(upgrade);
+			break;
+		default:
+			break;
+		}
+		return result;
 	}
 
 	/**
@@ -354,4 +1974,29 @@ public abstract class Board implements Serializable {
 	public final int moveCount() {
 		return moves.size();
 	}
+
+	/**
+	 * The marker piece used for the mailbox border.
+	 */
+	private static final class Border extends Piece {
+
+		/** Versioning for object serialization. */
+		@Serial
+		private static final long serialVersionUID = -3386093263512372254L;
+
+		@Override
+		public MoveList getMoves(final boolean checkCheck) {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Keep the border a singleton across serialization.
+		 *
+		 * @return the shared border marker
+		 */
+		@Serial
+		private Object readResolve() {
+			return BORDER;
+		}
+	}
 }
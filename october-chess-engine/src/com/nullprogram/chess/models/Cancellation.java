@@ -0,0 +1,61 @@
+package com.nullprogram.chess.models;
+
+/**
+ * A request that lengthy work, such as an AI's search, give up early.
+ *
+ * Tokens form a tree: a token counts as cancelled once it or any token it
+ * was made under is. Every tree hangs from one token cancelled when the
+ * JVM shuts down, so nothing keeps searching through the exit.
+ */
+public final class Cancellation {
+
+	/** The token cancelled at shutdown, above every other. */
+	private static final Cancellation SHUTDOWN = new Cancellation(null);
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(SHUTDOWN::cancel, "Cancellation"));
+	}
+
+	/** The token this one was made under, or null at the top. */
+	private final Cancellation parent;
+
+	/** Whether this token itself has been cancelled. */
+	private volatile boolean cancelled;
+
+	/**
+	 * Create a token cancelled only by shutdown, until cancelled itself.
+	 */
+	public Cancellation() {
+		this(SHUTDOWN);
+	}
+
+	/**
+	 * Create a token also cancelled along with another.
+	 *
+	 * @param above the token to follow, or null for none
+	 */
+	public Cancellation(final Cancellation above) {
+		parent = above;
+	}
+
+	/**
+	 * Cancel this token and every token made under it.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Determine if the work should give up.
+	 *
+	 * @return true if this token or one above it was cancelled
+	 */
+	public boolean isCancelled() {
+		for (Cancellation c = this; c != null; c = c.parent) {
+			if (c.cancelled) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -55,6 +55,9 @@ public class Game implements Runnable {
 	/** When the game is done, this is the winner. */
 	private Side winner;
 
+	/** Cancelled when the game ends early, calling off players' turns. */
+	private final Cancellation cancellation = new Cancellation();
+
 	/** List of event listeners. */
 	private final Collection<GameListener> listeners = new CopyOnWriteArraySet<>();
 
@@ -85,12 +88,13 @@ public class Game implements Runnable {
 	}
 
 	/**
-	 * End the running game.
+	 * End the running game, cancelling any turn in progress.
 	 */
 	public final void end() {
 		listeners.clear();
 		winner = null;
 		done = true;
+		cancellation.cancel();
 	}
 
 	/**
@@ -191,6 +195,16 @@ public class Game implements Runnable {
 		return done;
 	}
 
+	/**
+	 * Get the token cancelled when this game is ended, for players to stop
+	 * thinking about a game nobody is waiting on.
+	 *
+	 * @return the game's cancellation
+	 */
+	public final Cancellation getCancellation() {
+		return cancellation;
+	}
+
 	/**
 	 * Return the winner of this game.
 	 *
@@ -0,0 +1,272 @@
+package com.nullprogram.chess.models;
+
+import java.util.Arrays;
+
+/**
+ * Pin and check information for one side of a board, used to decide whether
+ * a move leaves that side's king attacked without playing it.
+ *
+ * The checkers of the king and the pieces pinned against it are found once
+ * per position and reused for every move generated there. Moves are only
+ * played and taken back for the rare cases the pin test cannot cover, such
+ * as en passant, where two pieces leave the line to the king at once.
+ */
+final class Legality {
+
+	/** Bits of a pin code holding the ray direction. */
+	private static final int DIR_BITS = 3;
+
+	/** Largest stamp before the marks must be cleared. */
+	private static final int MAX_STAMP = Integer.MAX_VALUE >>> DIR_BITS;
+
+	/** The board being examined. */
+	private final Board board;
+
+	/** Ray directions out of the king: orthogonals, then diagonals. */
+	private final int[] rays;
+
+	/** Mailbox distance between vertically adjacent squares. */
+	private final int stride;
+
+	/** Board version the marks were computed for. */
+	private int version = -1;
+
+	/** Side the marks were computed for. */
+	private Side side;
+
+	/** Marker for the current computation; older marks are stale. */
+	private int stamp;
+
+	/** Square of the king the marks were computed for. */
+	private int king;
+
+	/** Number of pieces giving check. */
+	private int checkers;
+
+	/** Squares that capture or block a single checker, marked with stamp. */
+	private final int[] evasions;
+
+	/** Pin code of each pinned piece's square. */
+	private final int[] pinned;
+
+	/** Pin code of the squares a pinned piece may still move along. */
+	private final int[] lines;
+
+	/**
+	 * Create the legality test for a board.
+	 *
+	 * @param b the board
+	 */
+	Legality(final Board b) {
+		board = b;
+		int[] orth = b.offsets(Board.ORTHOGONAL);
+		int[] diag = b.offsets(Board.DIAGONAL);
+		rays = Arrays.copyOf(orth, orth.length + diag.length);
+		System.arraycopy(diag, 0, rays, orth.length, diag.length);
+		stride = b.squareOf(0, 1) - b.squareOf(0, 0);
+		int size = b.squares();
+		evasions = new int[size];
+		pinned = new int[size];
+		lines = new int[size];
+	}
+
+	/**
+	 * Determine if a move leaves the moving side's king unattacked.
+	 *
+	 * @param move a pseudo-legal move
+	 * @return true if the move is legal
+	 */
+	boolean isLegal(final Move move) {
+		Position a = move.getOrigin();
+		Position b = move.getDest();
+		if (a == null || b == null || (move.getNext() != null && !isPromotion(move))) {
+			return byPlaying(move);
+		}
+		int from = board.squareOf(a);
+		int to = board.squareOf(b);
+		Piece p = board.pieceAt(from);
+		if (p.getType() == PieceType.KING && from != board.kingSquare(p.getSide())) {
+			return byPlaying(move);
+		}
+		return isLegal(from, to, p.getSide());
+	}
+
+	/**
+	 * Determine if a packed move leaves the moving side's king unattacked.
+	 *
+	 * @param move a pseudo-legal packed move
+	 * @return true if the move is legal
+	 */
+	boolean isLegal(final int move) {
+		int from = PackedMove.from(move);
+		Side s = board.pieceAt(from).getSide();
+		switch (PackedMove.kind(move)) {
+		case PackedMove.CASTLE:
+			return true;
+		case PackedMove.EN_PASSANT:
+			board.makeMove(move);
+			boolean ret = board.check(s);
+			board.unmakeMove();
+			return !ret;
+		default:
+			if (PackedMove.moved(move) == PieceType.KING && from != board.kingSquare(s)) {
+				board.makeMove(move);
+				boolean checked = board.check(s);
+				board.unmakeMove();
+				return !checked;
+			}
+			return isLegal(from, PackedMove.to(move), s);
+		}
+	}
+
+	/**
+	 * Determine if moving a piece other than an untracked king leaves its
+	 * side's king unattacked.
+	 *
+	 * @param from origin square index
+	 * @param to   destination square index
+	 * @param s    side of the moving piece
+	 * @return true if the move is legal
+	 */
+	private boolean isLegal(final int from, final int to, final Side s) {
+		int k = board.kingSquare(s);
+		if (k < 0) {
+			return true;
+		} else if (from == k) {
+			return !board.isSquareAttacked(to, Piece.opposite(s), from);
+		}
+		update(s, k);
+		if (checkers > 1 || (checkers == 1 && evasions[to] != stamp)) {
+			return false;
+		}
+		return pinned[from] >>> DIR_BITS != stamp || lines[to] == pinned[from];
+	}
+
+	/**
+	 * Decide legality the slow way, by playing the move and looking for
+	 * check.
+	 *
+	 * @param move the move
+	 * @return true if the move is legal
+	 */
+	private boolean byPlaying(final Move move) {
+		Side s = board.getPiece(move.getOrigin()).getSide();
+		board.move(move);
+		boolean ret = board.check(s);
+		board.undo();
+		return !ret;
+	}
+
+	/**
+	 * Determine if a move is a plain move followed by a pawn promotion,
+	 * which replaces the piece on the destination square in place.
+	 *
+	 * @param move the move
+	 * @return true for a promotion
+	 */
+	private static boolean isPromotion(final Move move) {
+		Move remove = move.getNext();
+		Move create = remove.getNext();
+		return move.getDest().equals(remove.getOrigin()) && remove.getDest() == null && create != null
+				&& create.getOrigin() == null && move.getDest().equals(create.getDest())
+				&& create.getNext() == null;
+	}
+
+	/**
+	 * Recompute the checkers and pins of a side, unless the board has not
+	 * changed since the last time.
+	 *
+	 * @param s the side to move
+	 * @param k square of its king
+	 */
+	private void update(final Side s, final int k) {
+		if (version == board.version() && side == s) {
+			return;
+		}
+		version = board.version();
+		side = s;
+		king = k;
+		if (++stamp == MAX_STAMP) {
+			Arrays.fill(evasions, 0);
+			Arrays.fill(pinned, 0);
+			Arrays.fill(lines, 0);
+			stamp = 1;
+		}
+		checkers = 0;
+		Side by = Piece.opposite(s);
+		int behind = by == Side.WHITE ? -stride : stride;
+		checker(k + behind - 1, by, PieceType.PAWN);
+		checker(k + behind + 1, by, PieceType.PAWN);
+		for (int sq : board.neighbours(k, Board.JUMP)) {
+			Piece p = board.pieceAt(sq);
+			if (p != null && p.getSide() == by && p.getType().isJumper()) {
+				checkers++;
+				evasions[sq] = stamp;
+			}
+		}
+		for (int sq : board.neighbours(k, Board.STEP)) {
+			checker(sq, by, PieceType.KING);
+		}
+		for (int dir = 0; dir < rays.length; dir++) {
+			ray(dir, by);
+		}
+	}
+
+	/**
+	 * Count a square as a checker if it holds the given enemy piece.
+	 *
+	 * @param sq   square next to the king
+	 * @param by   the enemy side
+	 * @param type the piece type that attacks from there
+	 */
+	private void checker(final int sq, final Side by, final PieceType type) {
+		if (!board.onBoard(sq)) {
+			return;
+		}
+		Piece p = board.pieceAt(sq);
+		if (p != null && p.getSide() == by && p.getType() == type) {
+			checkers++;
+			evasions[sq] = stamp;
+		}
+	}
+
+	/**
+	 * Walk one ray out from the king looking for a sliding checker, or for
+	 * one friendly piece with a slider behind it.
+	 *
+	 * @param dir index into the ray directions
+	 * @param by  the enemy side
+	 */
+	private void ray(final int dir, final Side by) {
+		int offset = rays[dir];
+		boolean orthogonal = dir < rays.length / 2;
+		int shield = -1;
+		for (int sq = king + offset; board.onBoard(sq); sq += offset) {
+			Piece p = board.pieceAt(sq);
+			if (p == null) {
+				continue;
+			} else if (p.getSide() != by) {
+				if (shield >= 0) {
+					return;
+				}
+				shield = sq;
+				continue;
+			} else if (!(orthogonal ? p.getType().isOrthogonal() : p.getType().isDiagonal())) {
+				return;
+			}
+			if (shield < 0) {
+				checkers++;
+				for (int on = king + offset; on != sq + offset; on += offset) {
+					evasions[on] = stamp;
+				}
+			} else {
+				int code = stamp << DIR_BITS | dir;
+				pinned[shield] = code;
+				for (int on = king + offset; on != sq + offset; on += offset) {
+					lines[on] = code;
+				}
+			}
+			return;
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package com.nullprogram.chess.models;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Magic bitboard attack tables for sliding pieces on boards of at most 64
+ * squares.
+ *
+ * For each square, the squares whose occupancy can stop a slide are masked
+ * out of the occupied set, multiplied by a "magic" number and shifted down.
+ * The result indexes a table of precomputed attack sets, so a rook or bishop
+ * attack set costs one multiply and one load regardless of how far the rays
+ * reach. The magic numbers are found by random search when a board size is
+ * first seen and then shared by every board of that size.
+ */
+public final class Magics {
+
+	/** Orthogonal directions as {dx, dy} pairs. */
+	private static final int[][] ORTHOGONALS = {{0, 1}, {0, -1}, {1, 0}, {-1, 0}};
+
+	/** Diagonal directions as {dx, dy} pairs. */
+	private static final int[][] DIAGONALS = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+	/** Seed for the magic search, fixed so every run builds the same tables. */
+	private static final long SEED = 0x6d61676963L;
+
+	/**
+	 * Candidates tried for one square before allowing its table one more
+	 * index bit, which makes a magic much easier to find.
+	 */
+	private static final int MAX_TRIES = 1 << 18;
+
+	/** Extra index bits allowed before giving up on the board size. */
+	private static final int MAX_SPARE_BITS = 2;
+
+	/** Largest table entry count per square worth building. */
+	private static final int MAX_BITS = 14;
+
+	/** Tables already built, by board size; null where none could be built. */
+	private static final Map<Long, Magics> CACHE = new HashMap<>();
+
+	/** Board width. */
+	private final int width;
+
+	/** Board height. */
+	private final int height;
+
+	/** Orthogonal attack tables. */
+	private final Table orthogonal;
+
+	/** Diagonal attack tables. */
+	private final Table diagonal;
+
+	/**
+	 * Build the tables for a board size.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 * @throws IllegalStateException if no magic numbers could be found
+	 */
+	private Magics(final int w, final int h) {
+		width = w;
+		height = h;
+		SplittableRandom rng = new SplittableRandom(SEED);
+		orthogonal = new Table(ORTHOGONALS, rng);
+		diagonal = new Table(DIAGONALS, rng);
+	}
+
+	/**
+	 * Get the shared tables for a board size, building them on first use.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 * @return the tables, or null if the size is unsupported
+	 */
+	public static synchronized Magics get(final int w, final int h) {
+		Long key = (long) w << Integer.SIZE | h;
+		if (!CACHE.containsKey(key)) {
+			CACHE.put(key, create(w, h));
+		}
+		return CACHE.get(key);
+	}
+
+	/**
+	 * Build fresh tables for a board size, bypassing the shared cache.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 * @return the tables, or null if the size is unsupported
+	 */
+	public static Magics create(final int w, final int h) {
+		if (w * h > Bitboards64.SQUARES) {
+			return null;
+		}
+		try {
+			return new Magics(w, h);
+		} catch (IllegalStateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Squares attacked along ranks and files from a square.
+	 *
+	 * @param bit the square bit index
+	 * @param occ occupied squares
+	 * @return attacked squares, including the first blocker on each ray
+	 */
+	public long orthogonal(final int bit, final long occ) {
+		return orthogonal.attacks(bit, occ);
+	}
+
+	/**
+	 * Squares attacked along diagonals from a square.
+	 *
+	 * @param bit the square bit index
+	 * @param occ occupied squares
+	 * @return attacked squares, including the first blocker on each ray
+	 */
+	public long diagonal(final int bit, final long occ) {
+		return diagonal.attacks(bit, occ);
+	}
+
+	/**
+	 * Get the number of attack sets stored.
+	 *
+	 * @return total table entries for both kinds of slide
+	 */
+	public int size() {
+		return orthogonal.size() + diagonal.size();
+	}
+
+	/**
+	 * Compute the attack set of a slide by walking the rays.
+	 *
+	 * @param dirs  directions as {dx, dy} pairs
+	 * @param x     origin x coordinate
+	 * @param y     origin y coordinate
+	 * @param occ   occupied squares
+	 * @param edges true to drop the last square of each ray, giving the
+	 *              squares whose occupancy matters
+	 * @return the squares reached
+	 */
+	private long walk(final int[][] dirs, final int x, final int y, final long occ, final boolean edges) {
+		long set = 0;
+		for (int[] d : dirs) {
+			int cx = x + d[0];
+			int cy = y + d[1];
+			while (cx >= 0 && cy >= 0 && cx < width && cy < height) {
+				long b = 1L << (cy * width + cx);
+				cx += d[0];
+				cy += d[1];
+				boolean last = cx < 0 || cy < 0 || cx >= width || cy >= height;
+				if (edges && last) {
+					break;
+				}
+				set |= b;
+				if ((occ & b) != 0) {
+					break;
+				}
+			}
+		}
+		return set;
+	}
+
+	/**
+	 * The magic tables for one kind of slide.
+	 */
+	private final class Table {
+
+		/** Relevant occupancy mask of each square. */
+		private final long[] masks;
+
+		/** Magic multiplier of each square. */
+		private final long[] magics;
+
+		/** Right shift of each square's product. */
+		private final int[] shifts;
+
+		/** Attack sets of each square, by magic index. */
+		private final long[][] attacks;
+
+		/**
+		 * Search for magics and fill in the attack sets.
+		 *
+		 * @param dirs slide directions as {dx, dy} pairs
+		 * @param rng  source of candidate magics
+		 */
+		Table(final int[][] dirs, final SplittableRandom rng) {
+			int n = width * height;
+			masks = new long[n];
+			magics = new long[n];
+			shifts = new int[n];
+			attacks = new long[n][];
+			for (int bit = 0; bit < n; bit++) {
+				int x = bit % width;
+				int y = bit / width;
+				long mask = walk(dirs, x, y, 0, true);
+				int bits = Long.bitCount(mask);
+				if (bits > MAX_BITS) {
+					throw new IllegalStateException("table too large");
+				}
+				int count = 1 << bits;
+				long[] occs = new long[count];
+				long[] sets = new long[count];
+				long sub = 0;
+				for (int i = 0; i < count; i++) {
+					occs[i] = sub;
+					sets[i] = walk(dirs, x, y, sub, false);
+					sub = (sub - mask) & mask;
+				}
+				masks[bit] = mask;
+				for (int spare = 0; attacks[bit] == null; spare++) {
+					if (spare > MAX_SPARE_BITS || bits + spare > MAX_BITS) {
+						throw new IllegalStateException("no magic found");
+					}
+					int shift = Long.SIZE - Math.max(bits + spare, 1);
+					long[] table = new long[1 << (Long.SIZE - shift)];
+					long magic = search(shift, occs, sets, table, rng);
+					if (magic != 0) {
+						magics[bit] = magic;
+						shifts[bit] = shift;
+						attacks[bit] = table;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Find a magic that maps every occupancy to a slot holding its own
+		 * attack set, and leave the table filled in.
+		 *
+		 * @param shift right shift of the product
+		 * @param occs  every subset of the mask
+		 * @param sets  attack set of each subset
+		 * @param table table to fill
+		 * @param rng   source of candidates
+		 * @return the magic, or 0 if none was found
+		 */
+		private long search(final int shift, final long[] occs, final long[] sets, final long[] table,
+				final SplittableRandom rng) {
+			int[] used = new int[table.length];
+			for (int attempt = 1; attempt <= MAX_TRIES; attempt++) {
+				long magic = rng.nextLong() & rng.nextLong() & rng.nextLong();
+				if (magic == 0) {
+					continue;
+				}
+				boolean ok = true;
+				for (int i = 0; ok && i < occs.length; i++) {
+					int index = (int) ((occs[i] * magic) >>> shift);
+					if (used[index] != attempt) {
+						used[index] = attempt;
+						table[index] = sets[i];
+					} else if (table[index] != sets[i]) {
+						ok = false;
+					}
+				}
+				if (ok) {
+					return magic;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Look up an attack set.
+		 *
+		 * @param bit square bit index
+		 * @param occ occupied squares
+		 * @return attacked squares
+		 */
+		long attacks(final int bit, final long occ) {
+			return attacks[bit][(int) (((occ & masks[bit]) * magics[bit]) >>> shifts[bit])];
+		}
+
+		/**
+		 * Get the number of attack sets stored.
+		 *
+		 * @return total table entries
+		 */
+		int size() {
+			int total = 0;
+			for (long[] a : attacks) {
+				total += a.length;
+			}
+			return total;
+		}
+	}
+}
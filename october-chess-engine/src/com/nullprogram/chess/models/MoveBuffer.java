@@ -0,0 +1,136 @@
+package com.nullprogram.chess.models;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A growable list of packed moves (see PackedMove), backed by an int array.
+ *
+ * Unlike MoveList, nothing is allocated per move or per loop, and a buffer
+ * can be cleared and refilled indefinitely once it has grown to size.
+ */
+public final class MoveBuffer {
+
+	/** Capacity of a new buffer. */
+	private static final int INITIAL = 64;
+
+	/** The moves. */
+	private int[] moves;
+
+	/** Number of moves in use. */
+	private int size;
+
+	/**
+	 * Create an empty buffer.
+	 */
+	public MoveBuffer() {
+		this(INITIAL);
+	}
+
+	/**
+	 * Create an empty buffer with room for a number of moves.
+	 *
+	 * @param capacity initial capacity
+	 */
+	public MoveBuffer(final int capacity) {
+		moves = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Append a move.
+	 *
+	 * @param move packed move
+	 */
+	public void add(final int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, size * 2);
+		}
+		moves[size++] = move;
+	}
+
+	/**
+	 * Get a move.
+	 *
+	 * @param i index from 0 to size() - 1
+	 * @return packed move
+	 */
+	public int get(final int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Replace a move.
+	 *
+	 * @param i    index from 0 to size() - 1
+	 * @param move packed move
+	 */
+	public void set(final int i, final int move) {
+		moves[i] = move;
+	}
+
+	/**
+	 * Exchange two moves.
+	 *
+	 * @param i first index
+	 * @param j second index
+	 */
+	public void swap(final int i, final int j) {
+		int t = moves[i];
+		moves[i] = moves[j];
+		moves[j] = t;
+	}
+
+	/**
+	 * Get the number of moves.
+	 *
+	 * @return the number of moves
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Determine if the buffer is empty.
+	 *
+	 * @return true if empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Copy the moves into an array of their own.
+	 *
+	 * @return the moves, exactly size() long
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(moves, size);
+	}
+
+	/**
+	 * Remove every move, keeping the storage.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Drop the moves past a given count, keeping the storage.
+	 *
+	 * @param n number of moves to keep, at most size()
+	 */
+	public void truncate(final int n) {
+		size = n;
+	}
+
+	/**
+	 * Shuffle the order of the moves.
+	 *
+	 * @param rng source of randomness
+	 */
+	public void shuffle(final Random rng) {
+		for (int i = size - 1; i > 0; i--) {
+			swap(i, rng.nextInt(i + 1));
+		}
+	}
+}
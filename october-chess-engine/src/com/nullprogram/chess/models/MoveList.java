@@ -1,5 +1,7 @@
 package com.nullprogram.chess.models;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -11,6 +13,10 @@ import java.util.List;
  * Safe list of moves.
  *
  * Before a move is added it can be checked for some basic validity.
+ *
+ * A list made by Board.allMoves() holds packed moves (see PackedMove) and
+ * only builds Move objects when they are first asked for, so that counting
+ * moves or looking for a destination creates nothing per move.
  */
 public class MoveList implements Iterable<Move>, Serializable {
 
@@ -24,8 +30,14 @@ public class MoveList implements Iterable<Move>, Serializable {
 	/** Should we check for check when verifying moves. */
 	private final boolean check;
 
-	/** The actual list of moves. */
-	private final List<Move> moves = new ArrayList<>();
+	/** The actual list of moves, or null until the packed moves are built. */
+	private List<Move> moves;
+
+	/** Packed moves not yet built into Move objects, or null. */
+	private transient int[] packed;
+
+	/** Side making the packed moves. */
+	private transient Side packedSide;
 
 	/**
 	 * Create a new move list relative to a board.
@@ -45,6 +57,49 @@ public class MoveList implements Iterable<Move>, Serializable {
 	public MoveList(final Board verifyBoard, final boolean checkCheck) {
 		board = verifyBoard;
 		check = checkCheck;
+		moves = new ArrayList<>();
+	}
+
+	/**
+	 * Create a list of packed moves, which are built into Move objects
+	 * only when they are first asked for.
+	 *
+	 * @param verifyBoard the board the moves were generated on
+	 * @param side        side making the moves
+	 * @param packedMoves the packed moves, owned by the list from now on
+	 */
+	MoveList(final Board verifyBoard, final Side side, final int[] packedMoves) {
+		board = verifyBoard;
+		check = false;
+		packed = packedMoves;
+		packedSide = side;
+	}
+
+	/**
+	 * Build the packed moves, if any, into Move objects. They depend only on
+	 * the board's geometry, not on its position, so the board may have
+	 * moved on since they were generated.
+	 */
+	private void build() {
+		if (packed != null) {
+			moves = new ArrayList<>(packed.length);
+			for (int move : packed) {
+				moves.add(board.toMove(move, packedSide));
+			}
+			packed = null;
+		}
+	}
+
+	/**
+	 * Build the packed moves before the list is written out.
+	 *
+	 * @param out the stream
+	 * @throws IOException on write failure
+	 */
+	@Serial
+	private void writeObject(final ObjectOutputStream out) throws IOException {
+		build();
+		out.defaultWriteObject();
 	}
 
 	/**
@@ -53,6 +108,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @param move move to be added
 	 */
 	public final void add(final Move move) {
+		build();
 		moves.add(move);
 	}
 
@@ -62,6 +118,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @param list a collection of moves
 	 */
 	public final void addAll(final Iterable<Move> list) {
+		build();
 		for (Move move : list) {
 			moves.add(move);
 		}
@@ -115,6 +172,18 @@ public class MoveList implements Iterable<Move>, Serializable {
 		}
 	}
 
+	/**
+	 * Add a move whose destination is known to be on the board and free of
+	 * friendly pieces, such as one produced from a bitboard.
+	 *
+	 * @param move move to be added
+	 */
+	public final void addTarget(final Move move) {
+		if (causesCheck(move)) {
+			add(move);
+		}
+	}
+
 	/**
 	 * Determine if move will cause check for the same side.
 	 *
@@ -122,14 +191,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return true if move causes check
 	 */
 	private boolean causesCheck(final Move move) {
-		if (!check) {
-			return true;
-		}
-		Piece p = board.getPiece(move.getOrigin());
-		board.move(move);
-		boolean ret = board.check(p.getSide());
-		board.undo();
-		return !ret;
+		return !check || board.isLegal(move);
 	}
 
 	/**
@@ -139,6 +201,15 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return true if destination is present in list
 	 */
 	public final boolean containsDest(final Position pos) {
+		if (packed != null) {
+			int sq = board.squareOf(pos);
+			for (int move : packed) {
+				if (PackedMove.to(move) == sq) {
+					return true;
+				}
+			}
+			return false;
+		}
 		for (Move move : this) {
 			if (pos.equals(move.getDest())) {
 				return true;
@@ -154,6 +225,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return move containing given destination
 	 */
 	public final Move getMoveByDest(final Position dest) {
+		build();
 		for (Move move : this) {
 			if (dest.equals(move.getDest())) {
 				return move;
@@ -168,6 +240,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return move popped off the stack
 	 */
 	public final Move pop() {
+		build();
 		if (isEmpty()) {
 			return null;
 		}
@@ -182,6 +255,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return move at the top of the stack
 	 */
 	public final Move peek() {
+		build();
 		if (isEmpty()) {
 			return null;
 		}
@@ -194,7 +268,7 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return the number of moves in this list
 	 */
 	public final int size() {
-		return moves.size();
+		return packed != null ? packed.length : moves.size();
 	}
 
 	/**
@@ -203,35 +277,20 @@ public class MoveList implements Iterable<Move>, Serializable {
 	 * @return true if empty
 	 */
 	public final boolean isEmpty() {
-		return moves.isEmpty();
+		return packed != null ? packed.length == 0 : moves.isEmpty();
 	}
 
 	/**
 	 * Shuffle the order of the moves in this list.
 	 */
 	public final void shuffle() {
+		build();
 		Collections.shuffle(moves);
 	}
 
 	@Override
 	public final Iterator<Move> iterator() {
+		build();
 		return moves.iterator();
 	}
-
-	/**
-     * Add a move to a listMove of a piece
-     * 
-     * @param orig is the origin of the move
-     * @param dest is the destination of the move
-     * @return true if everything have been done
-     */
-    public final boolean addPieceMove(Position orig, Position dest) {
-    	if(!this.addCapture(new Move(orig, dest))) {
-    		return false;
-    	}
-    	if(!board.isFree(dest)) {
-    		return false;
-    	}
-    	return true;
-    }
 }
@@ -0,0 +1,163 @@
+package com.nullprogram.chess.models;
+
+/**
+ * A move packed into a single int, for search and generation.
+ *
+ * Bits 0-9 hold the origin square index and bits 10-19 the destination
+ * square index (see Board.squareOf()). Bits 20-22 hold the type of the
+ * moving piece, bits 23-26 the type of the captured piece plus one (zero for
+ * none), bits 27-28 the kind of move and bits 29-31 the promotion type.
+ *
+ * The value 0 is never a valid move, since square 0 is in the border, and
+ * so is used as "no move".
+ */
+public final class PackedMove {
+
+	/** No move. */
+	public static final int NONE = 0;
+
+	/** Kind: an ordinary move or capture. */
+	public static final int NORMAL = 0;
+
+	/** Kind: castling, given by the king's move; the rook follows. */
+	public static final int CASTLE = 1;
+
+	/** Kind: en passant capture of the pawn beside the origin. */
+	public static final int EN_PASSANT = 2;
+
+	/** Kind: a pawn move that promotes on arrival. */
+	public static final int PROMOTION = 3;
+
+	/** Largest square index that can be packed. */
+	public static final int MAX_SQUARE = (1 << 10) - 1;
+
+	/** Shift of the destination field. */
+	private static final int TO = 10;
+
+	/** Shift of the moving piece field. */
+	private static final int MOVED = 20;
+
+	/** Shift of the captured piece field. */
+	private static final int CAPTURED = 23;
+
+	/** Shift of the kind field. */
+	private static final int KIND = 27;
+
+	/** Shift of the promotion field. */
+	private static final int PROMOTED = 29;
+
+	/** Mask of a square field. */
+	private static final int SQUARE_MASK = MAX_SQUARE;
+
+	/** Mask of a piece type field. */
+	private static final int TYPE_MASK = 7;
+
+	/** Mask of the captured piece field. */
+	private static final int CAPTURED_MASK = 15;
+
+	/** Mask of the kind field. */
+	private static final int KIND_MASK = 3;
+
+	/** Piece types by ordinal. */
+	private static final PieceType[] TYPES = PieceType.values();
+
+	/**
+	 * Hidden constructor.
+	 */
+	private PackedMove() {
+	}
+
+	/**
+	 * Pack a move.
+	 *
+	 * @param from     origin square index
+	 * @param to       destination square index
+	 * @param moved    type of the moving piece
+	 * @param captured type of the captured piece, or null
+	 * @param kind     NORMAL, CASTLE, EN_PASSANT or PROMOTION
+	 * @param promoted type promoted to, or null
+	 * @return the packed move
+	 */
+	public static int of(final int from, final int to, final PieceType moved, final PieceType captured,
+			final int kind, final PieceType promoted) {
+		int m = from | to << TO | moved.ordinal() << MOVED | kind << KIND;
+		if (captured != null) {
+			m |= (captured.ordinal() + 1) << CAPTURED;
+		}
+		if (promoted != null) {
+			m |= promoted.ordinal() << PROMOTED;
+		}
+		return m;
+	}
+
+	/**
+	 * Get the origin square index.
+	 *
+	 * @param m packed move
+	 * @return the origin
+	 */
+	public static int from(final int m) {
+		return m & SQUARE_MASK;
+	}
+
+	/**
+	 * Get the destination square index.
+	 *
+	 * @param m packed move
+	 * @return the destination
+	 */
+	public static int to(final int m) {
+		return m >>> TO & SQUARE_MASK;
+	}
+
+	/**
+	 * Get the type of the moving piece.
+	 *
+	 * @param m packed move
+	 * @return the type
+	 */
+	public static PieceType moved(final int m) {
+		return TYPES[m >>> MOVED & TYPE_MASK];
+	}
+
+	/**
+	 * Get the type of the captured piece.
+	 *
+	 * @param m packed move
+	 * @return the type, or null if nothing is captured
+	 */
+	public static PieceType captured(final int m) {
+		int c = m >>> CAPTURED & CAPTURED_MASK;
+		return c == 0 ? null : TYPES[c - 1];
+	}
+
+	/**
+	 * Get the kind of move.
+	 *
+	 * @param m packed move
+	 * @return NORMAL, CASTLE, EN_PASSANT or PROMOTION
+	 */
+	public static int kind(final int m) {
+		return m >>> KIND & KIND_MASK;
+	}
+
+	/**
+	 * Get the type a pawn promotes to.
+	 *
+	 * @param m packed move
+	 * @return the type, or null if this is not a promotion
+	 */
+	public static PieceType promoted(final int m) {
+		return kind(m) == PROMOTION ? TYPES[m >>> PROMOTED & TYPE_MASK] : null;
+	}
+
+	/**
+	 * Determine if a move captures, en passant included.
+	 *
+	 * @param m packed move
+	 * @return true for a capture
+	 */
+	public static boolean isCapture(final int m) {
+		return (m >>> CAPTURED & CAPTURED_MASK) != 0 || kind(m) == EN_PASSANT;
+	}
+}
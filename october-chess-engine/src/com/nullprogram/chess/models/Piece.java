@@ -1,7 +1,9 @@
 package com.nullprogram.chess.models;
 
+import com.nullprogram.chess.models.pieces.PieceFactory;
 import com.nullprogram.chess.view.ImageServer;
 import java.awt.Image;
+
 import java.io.Serial;
 import java.io.Serializable;
 
@@ -13,14 +15,14 @@ import java.io.Serializable;
  * games.
  *
  * To make it work with the AI, which you will certainly want to do, you need to
- * add a piece weight to the default AI configuration (default.properies) and a
- * parse entry in the Minimax constructor, right after all the other pieces.
+ * add a PieceType for it and a piece weight under that type's name to the
+ * default AI configuration (default.properies).
  */
 public abstract class Piece implements Serializable {
 
 	/** Versioning for object serialization. */
 	@Serial
-    private static final long serialVersionUID = -214124732216708977L;
+    private static final long serialVersionUID = -3126772263538345489L;
 
 	/** The side this piece belongs to. */
 	private Side side;
@@ -34,8 +36,11 @@ public abstract class Piece implements Serializable {
 	/** Movement counter. */
 	private int moved = 0;
 
-	/** Name of this piece. */
-	private String name;
+	/** Type of this piece. */
+	private PieceType type;
+
+	/** Index of this piece in its board's live piece list. */
+	private int slot;
 
 	/**
 	 * When creating a piece, you must always choose a side.
@@ -47,11 +52,11 @@ public abstract class Piece implements Serializable {
 	 * Create a new piece on the given side.
 	 *
 	 * @param owner     the side of the piece
-	 * @param pieceName name of this piece
+	 * @param pieceType type of this piece
 	 */
-	protected Piece(final Side owner, final String pieceName) {
+	protected Piece(final Side owner, final PieceType pieceType) {
 		side = owner;
-		name = pieceName;
+		type = pieceType;
 	}
 
 	/**
@@ -126,7 +131,34 @@ public abstract class Piece implements Serializable {
 	 * @return image for this piece
 	 */
 	public final Image getImage() {
-		return ImageServer.getTile(name + "-" + side);
+		return ImageServer.getTile(type.getName() + "-" + side);
+	}
+
+	/**
+	 * Get the type of this piece.
+	 *
+	 * @return the piece type
+	 */
+	public final PieceType getType() {
+		return type;
+	}
+
+	/**
+	 * Record where this piece sits in its board's live piece list.
+	 *
+	 * @param index list index
+	 */
+	final void setSlot(final int index) {
+		slot = index;
+	}
+
+	/**
+	 * Get where this piece sits, or last sat, in its board's live piece list.
+	 *
+	 * @return list index
+	 */
+	final int getSlot() {
+		return slot;
 	}
 
 	/**
@@ -152,6 +184,20 @@ public abstract class Piece implements Serializable {
 		moved--;
 	}
 
+	/**
+	 * Create a copy of this piece, with the same position, move counter and
+	 * list slot, that is not on any board.
+	 *
+	 * @return the copy
+	 */
+	final Piece copy() {
+		Piece p = PieceFactory.create(type, side);
+		p.pos = pos;
+		p.moved = moved;
+		p.slot = slot;
+		return p;
+	}
+
 	/**
 	 * Return the opposing side.
 	 *
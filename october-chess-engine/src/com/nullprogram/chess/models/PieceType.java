@@ -0,0 +1,109 @@
+package com.nullprogram.chess.models;
+
+/**
+ * The kinds of piece known to the engine.
+ *
+ * The ordinal of each type is used as an index into the per-type tables kept
+ * by the board (bitboards, piece values), so new types must be appended.
+ */
+public enum PieceType {
+	/** The pawn. */
+	PAWN("Pawn"),
+	/** The knight. */
+	KNIGHT("Knight"),
+	/** The bishop. */
+	BISHOP("Bishop"),
+	/** The rook. */
+	ROOK("Rook"),
+	/** The queen. */
+	QUEEN("Queen"),
+	/** The king. */
+	KING("King"),
+	/** The chancellor (rook + knight). */
+	CHANCELLOR("Chancellor"),
+	/** The archbishop (bishop + knight). */
+	ARCHBISHOP("Archbishop");
+
+	/** Number of piece types. */
+	public static final int COUNT = values().length;
+
+	/** Movement kinds of each type, by ordinal. */
+	private static final int[] KINDS = new int[COUNT];
+
+	static {
+		for (PieceType type : values()) {
+			int kinds = 0;
+			if (type.isOrthogonal()) {
+				kinds |= Board.ORTHOGONAL;
+			}
+			if (type.isDiagonal()) {
+				kinds |= Board.DIAGONAL;
+			}
+			if (type.isJumper()) {
+				kinds |= Board.JUMP;
+			}
+			if (type == KING) {
+				kinds |= Board.STEP;
+			}
+			KINDS[type.ordinal()] = kinds;
+		}
+	}
+
+	/** Display name, also used for images and AI configuration keys. */
+	private final String name;
+
+	/**
+	 * Create a piece type.
+	 *
+	 * @param typeName display name of the type
+	 */
+	PieceType(final String typeName) {
+		name = typeName;
+	}
+
+	/**
+	 * Get the display name of this type.
+	 *
+	 * @return the display name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Get the movement kinds of this type, as a bitwise or of the Board
+	 * movement kind constants. Pawns move by their own rules and have none.
+	 *
+	 * @return the movement kinds
+	 */
+	public int getKinds() {
+		return KINDS[ordinal()];
+	}
+
+	/**
+	 * True if this type slides along ranks and files.
+	 *
+	 * @return true for rook-like movers
+	 */
+	public boolean isOrthogonal() {
+		return this == ROOK || this == QUEEN || this == CHANCELLOR;
+	}
+
+	/**
+	 * True if this type slides along diagonals.
+	 *
+	 * @return true for bishop-like movers
+	 */
+	public boolean isDiagonal() {
+		return this == BISHOP || this == QUEEN || this == ARCHBISHOP;
+	}
+
+	/**
+	 * True if this type makes knight jumps.
+	 *
+	 * @return true for knight-like movers
+	 */
+	public boolean isJumper() {
+		return this == KNIGHT || this == CHANCELLOR || this == ARCHBISHOP;
+	}
+}
@@ -19,6 +19,21 @@ public final class Position implements Comparable<Position>, Serializable {
 
 	private final int y;
 
+	/** Lowest coordinate held in the cache of shared positions. */
+	private static final int CACHE_MIN = -2;
+
+	/** Number of coordinates per axis held in the cache. */
+	private static final int CACHE_SIZE = 36;
+
+	/** Shared positions, so that move generation need not allocate. */
+	private static final Position[] CACHE = new Position[CACHE_SIZE * CACHE_SIZE];
+
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new Position(i % CACHE_SIZE + CACHE_MIN, i / CACHE_SIZE + CACHE_MIN);
+		}
+	}
+
 	/**
 	 * Create a new position with given coordinates.
 	 *
@@ -41,6 +56,37 @@ public final class Position implements Comparable<Position>, Serializable {
 		this(pos.x + deltax, pos.y + deltay);
 	}
 
+	/**
+	 * Get the shared position with the given coordinates.
+	 *
+	 * Coordinates within the cache return a canonical instance; anything
+	 * else (far off any supported board) is allocated.
+	 *
+	 * @param posX x coordinate
+	 * @param posY y coordinate
+	 * @return the position
+	 */
+	public static Position of(final int posX, final int posY) {
+		int cx = posX - CACHE_MIN;
+		int cy = posY - CACHE_MIN;
+		if (cx >= 0 && cy >= 0 && cx < CACHE_SIZE && cy < CACHE_SIZE) {
+			return CACHE[cy * CACHE_SIZE + cx];
+		}
+		return new Position(posX, posY);
+	}
+
+	/**
+	 * Get the shared position offset from an existing position.
+	 *
+	 * @param pos    original position
+	 * @param deltax change in x
+	 * @param deltay change in y
+	 * @return the position
+	 */
+	public static Position of(final Position pos, final int deltax, final int deltay) {
+		return of(pos.x + deltax, pos.y + deltay);
+	}
+
 	/**
 	 * Get the x coordinate of the position.
 	 *
@@ -0,0 +1,116 @@
+package com.nullprogram.chess.models;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions on one board size.
+ *
+ * A position's key is the exclusive or of a key for every piece on its
+ * square, plus keys for the side to move, each side's castling rights and
+ * the square of a pawn that may be taken en passant. Each of these can be
+ * added or removed with a single xor as the board changes. The keys are
+ * generated from a fixed seed, so a position hashes the same on every board
+ * of its size and in every run.
+ */
+final class Zobrist {
+
+	/** Seed for the keys. */
+	private static final long SEED = 0x7a6f6272697374L;
+
+	/** Number of castling right combinations for one side. */
+	static final int RIGHTS = 4;
+
+	/** Keys already generated, by mailbox size. */
+	private static final Map<Integer, Zobrist> CACHE = new HashMap<>();
+
+	/** Key of each side and piece type on each mailbox square. */
+	private final long[][] pieces;
+
+	/** Key for Black to move. */
+	private final long black;
+
+	/** Key of each side's castling rights. */
+	private final long[][] castling;
+
+	/** Key of a pawn on each mailbox square that can be taken en passant. */
+	private final long[] passant;
+
+	/**
+	 * Generate the keys for a mailbox.
+	 *
+	 * @param squares number of mailbox squares, padding included
+	 */
+	private Zobrist(final int squares) {
+		SplittableRandom rng = new SplittableRandom(SEED);
+		pieces = new long[2 * PieceType.COUNT][squares];
+		for (long[] keys : pieces) {
+			for (int sq = 0; sq < squares; sq++) {
+				keys[sq] = rng.nextLong();
+			}
+		}
+		black = rng.nextLong();
+		castling = new long[2][RIGHTS];
+		for (long[] keys : castling) {
+			for (int r = 1; r < RIGHTS; r++) {
+				keys[r] = rng.nextLong();
+			}
+		}
+		passant = new long[squares];
+		for (int sq = 0; sq < squares; sq++) {
+			passant[sq] = rng.nextLong();
+		}
+	}
+
+	/**
+	 * Get the shared keys for a mailbox size.
+	 *
+	 * @param squares number of mailbox squares, padding included
+	 * @return the keys
+	 */
+	static synchronized Zobrist get(final int squares) {
+		return CACHE.computeIfAbsent(squares, Zobrist::new);
+	}
+
+	/**
+	 * Key of a piece on a square.
+	 *
+	 * @param p  the piece
+	 * @param sq mailbox square index
+	 * @return the key
+	 */
+	long piece(final Piece p, final int sq) {
+		return pieces[p.getSide().ordinal() * PieceType.COUNT + p.getType().ordinal()][sq];
+	}
+
+	/**
+	 * Key for Black to move.
+	 *
+	 * @return the key
+	 */
+	long black() {
+		return black;
+	}
+
+	/**
+	 * Key of a side's castling rights.
+	 *
+	 * @param side   the side
+	 * @param rights bit 0 for the left corner and bit 1 for the right
+	 * @return the key, zero for no rights
+	 */
+	long castling(final Side side, final int rights) {
+		return castling[side.ordinal()][rights];
+	}
+
+	/**
+	 * Key of a pawn that can be taken en passant.
+	 *
+	 * @param sq mailbox square index of the pawn
+	 * @return the key
+	 */
+	long passant(final int sq) {
+		return passant[sq];
+	}
+}
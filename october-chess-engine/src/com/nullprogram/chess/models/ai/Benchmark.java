@@ -0,0 +1,543 @@
+package com.nullprogram.chess.models.ai;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Magics;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.PackedMove;
+import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.boards.EmptyBoard;
+import com.nullprogram.chess.models.boards.Gothic;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import com.nullprogram.chess.models.pieces.Archbishop;
+import com.nullprogram.chess.models.pieces.Bishop;
+import com.nullprogram.chess.models.pieces.Chancellor;
+import com.nullprogram.chess.models.pieces.King;
+import com.nullprogram.chess.models.pieces.Knight;
+import com.nullprogram.chess.models.pieces.Pawn;
+import com.nullprogram.chess.models.pieces.Queen;
+import com.nullprogram.chess.models.pieces.Rook;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Alternate main class for measuring engine throughput.
+ */
+public final class Benchmark {
+
+	/** Nanoseconds per second. */
+	static final double NANO = 1e9;
+
+	/** Time spent on each measurement, in nanoseconds. */
+	static final long RUN_TIME = 2000000000L;
+
+	/** Calls made before timing starts. */
+	static final int WARMUP = 2000;
+
+	/** Depth of the perft runs. */
+	static final int PERFT_DEPTH = 3;
+
+	/** Untimed perft runs made before timing starts. */
+	static final int PERFT_WARMUP = 3;
+
+	/** Depth of the fixed-depth searches. */
+	static final int SEARCH_DEPTH = 5;
+
+	/** Time allowed for a fixed-depth search, in seconds: effectively none. */
+	static final String NO_LIMIT = "100000";
+
+	/** Thread counts of the parallel scaling runs. */
+	static final int[] THREADS = {1, 2, 4, 8, 16};
+
+	/** Depth of the parallel scaling runs. */
+	static final int SCALING_DEPTH = 7;
+
+	/** Random plies played to reach a middlegame with captures on offer. */
+	static final int SCRAMBLE = 24;
+
+	/** Piece values for exchange evaluation, by PieceType ordinal. */
+	static final double[] VALUES = {1, 3, 3, 5, 9, 1000, 8.5, 6};
+
+	/** Number of random occupancies cycled through by the lookup test. */
+	static final int OCCUPANCIES = 1024;
+
+	/** Size of the standard board. */
+	static final int STANDARD = 8;
+
+	/** Size of the oversized board, too large for bitboards. */
+	static final int WIDE = 12;
+
+	/** Sliding directions as (dx, dy): the orthogonals, then the diagonals. */
+	static final int[][] RAYS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+	/** Border rows above and below the mailbox, as in Board. */
+	static final int PAD_ROWS = 2;
+
+	/** Marker of the mailbox border squares. */
+	static final Object BORDER = new Object();
+
+	/**
+	 * Hidden constructor.
+	 */
+	private Benchmark() {
+	}
+
+	/**
+	 * Run all benchmarks and print the results.
+	 *
+	 * @param args input arguments
+	 */
+	public static void main(final String[] args) {
+		magics(STANDARD, STANDARD);
+		allMoves("standard", new StandardBoard());
+		allMoves("gothic", new Gothic());
+		allMoves("12x12", wide());
+		allMoves("endgame", endgame());
+		offBoard("standard", scramble(new StandardBoard(), SCRAMBLE));
+		offBoard("12x12", scramble(wide(), SCRAMBLE));
+		perft("standard", new StandardBoard());
+		perft("gothic", new Gothic());
+		perft("12x12", wide());
+		perft("endgame", endgame());
+		see("standard", scramble(new StandardBoard(), SCRAMBLE));
+		see("gothic", scramble(new Gothic(), SCRAMBLE));
+		see("12x12", scramble(wide(), SCRAMBLE));
+		for (String feature : new String[] {"ordering", "pvs"}) {
+			search("standard", new StandardBoard(), feature);
+			search("gothic", new Gothic(), feature);
+			search("endgame", endgame(), feature);
+			search("middle", scramble(new StandardBoard(), SCRAMBLE), feature);
+		}
+		for (String mode : new String[] {"root", "lazy", "ybwc"}) {
+			scaling("standard", new StandardBoard(), mode);
+			scaling("middle", scramble(new StandardBoard(), SCRAMBLE), mode);
+		}
+		Scheduler.shared().shutdown();
+	}
+
+	/**
+	 * Measure the time to build the magic slider tables for a board size,
+	 * and the rate at which they answer lookups.
+	 *
+	 * @param w board width
+	 * @param h board height
+	 */
+	static void magics(final int w, final int h) {
+		long start = System.nanoTime();
+		Magics magics = Magics.create(w, h);
+		double build = (System.nanoTime() - start) / NANO;
+		if (magics == null) {
+			System.out.printf(Locale.ROOT, "%dx%d magics unavailable%n", w, h);
+			return;
+		}
+		System.out.printf(Locale.ROOT, "%dx%d magics built in %.0f ms, %d entries%n", w, h, build * 1000,
+				magics.size());
+		SplittableRandom rng = new SplittableRandom(1);
+		long[] occs = new long[OCCUPANCIES];
+		for (int i = 0; i < occs.length; i++) {
+			occs[i] = rng.nextLong() & rng.nextLong();
+		}
+		int squares = w * h;
+		long sink = 0;
+		long lookups = 0;
+		start = System.nanoTime();
+		long stop = start + RUN_TIME;
+		while (System.nanoTime() < stop) {
+			for (long occ : occs) {
+				for (int bit = 0; bit < squares; bit++) {
+					sink ^= magics.orthogonal(bit, occ) ^ magics.diagonal(bit, occ);
+				}
+			}
+			lookups += 2L * occs.length * squares;
+		}
+		double secs = (System.nanoTime() - start) / NANO;
+		System.out.printf(Locale.ROOT, "%dx%d magics %12.0f lookups/s, checksum %d%n", w, h, lookups / secs, sink & 1);
+	}
+
+	/**
+	 * Create a sparse late-game position on a standard-size board.
+	 *
+	 * @return the board
+	 */
+	static Board endgame() {
+		Board board = new EmptyBoard();
+		board.setPiece(4, 0, new King(Side.WHITE));
+		board.setPiece(0, 0, new Rook(Side.WHITE));
+		board.setPiece(3, 3, new Pawn(Side.WHITE));
+		board.setPiece(4, 7, new King(Side.BLACK));
+		board.setPiece(2, 5, new Knight(Side.BLACK));
+		board.setPiece(5, 6, new Pawn(Side.BLACK));
+		return board;
+	}
+
+	/**
+	 * Create a 12x12 board with a full set of pieces, which is too large for
+	 * bitboards and so exercises the mailbox.
+	 *
+	 * @return the board
+	 */
+	static Board wide() {
+		Board board = new EmptyBoard(WIDE, WIDE);
+		for (Side side : Side.values()) {
+			int home = side == Side.WHITE ? 0 : WIDE - 1;
+			int pawns = side == Side.WHITE ? 1 : WIDE - 2;
+			Piece[] row = {new Rook(side), new Knight(side), new Bishop(side), new Chancellor(side),
+				new Archbishop(side), new Queen(side), new King(side), new Archbishop(side),
+				new Chancellor(side), new Bishop(side), new Knight(side), new Rook(side)};
+			for (int x = 0; x < WIDE; x++) {
+				board.setPiece(x, home, row[x]);
+				board.setPiece(x, pawns, new Pawn(side));
+			}
+		}
+		return board;
+	}
+
+	/**
+	 * Measure the cost per node of a full-width legal move tree walk.
+	 *
+	 * @param name  label for the output
+	 * @param board board to walk
+	 */
+	static void perft(final String name, final Board board) {
+		for (int i = 0; i < PERFT_WARMUP; i++) {
+			perft(board, Side.WHITE, PERFT_DEPTH);
+		}
+		long nodes = 0;
+		long start = System.nanoTime();
+		long stop = start + RUN_TIME;
+		while (System.nanoTime() < stop) {
+			nodes += perft(board, Side.WHITE, PERFT_DEPTH);
+		}
+		double secs = (System.nanoTime() - start) / NANO;
+		System.out.printf(Locale.ROOT, "%-10s perft(%d) %10d nodes %10.0f nodes/s %8.2f us/node%n", name,
+				PERFT_DEPTH, nodes, nodes / secs, secs * NANO / nodes / 1000);
+	}
+
+	/**
+	 * Count the leaves of the legal move tree.
+	 *
+	 * @param board board to walk
+	 * @param side  side to move
+	 * @param depth remaining depth
+	 * @return number of leaves
+	 */
+	static long perft(final Board board, final Side side, final int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		long nodes = 0;
+		for (Move move : board.allMoves(side, true)) {
+			board.move(move);
+			nodes += perft(board, Piece.opposite(side), depth - 1);
+			board.undo();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Play random moves from a position, the same ones every run.
+	 *
+	 * @param board board to play on
+	 * @param plies number of moves to play
+	 * @return the board
+	 */
+	static Board scramble(final Board board, final int plies) {
+		SplittableRandom rng = new SplittableRandom(1);
+		MoveBuffer moves = new MoveBuffer();
+		Side side = Side.WHITE;
+		for (int i = 0; i < plies; i++) {
+			moves.clear();
+			board.generate(side, true, moves);
+			if (moves.isEmpty()) {
+				break;
+			}
+			board.move(board.toMove(moves.get(rng.nextInt(moves.size()))));
+			side = Piece.opposite(side);
+		}
+		return board;
+	}
+
+	/**
+	 * Measure static exchange evaluation throughput over every capture
+	 * available to either side.
+	 *
+	 * @param name  label for the output
+	 * @param board board to evaluate captures on
+	 */
+	static void see(final String name, final Board board) {
+		MoveBuffer captures = new MoveBuffer();
+		MoveBuffer moves = new MoveBuffer();
+		for (Side side : Side.values()) {
+			moves.clear();
+			board.generate(side, false, moves);
+			for (int i = 0; i < moves.size(); i++) {
+				if (PackedMove.isCapture(moves.get(i))) {
+					captures.add(moves.get(i));
+				}
+			}
+		}
+		if (captures.isEmpty()) {
+			System.out.printf(Locale.ROOT, "%-10s see() no captures%n", name);
+			return;
+		}
+		double sink = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			sink += board.see(captures.get(i % captures.size()), VALUES);
+		}
+		long calls = 0;
+		long start = System.nanoTime();
+		long stop = start + RUN_TIME;
+		while (System.nanoTime() < stop) {
+			for (int i = 0; i < captures.size(); i++) {
+				sink += board.see(captures.get(i), VALUES);
+			}
+			calls += captures.size();
+		}
+		double secs = (System.nanoTime() - start) / NANO;
+		System.out.printf(Locale.ROOT, "%-10s see() %3d captures %12.0f calls/s %8.1f ns/call, checksum %.0f%n",
+				name, captures.size(), calls / secs, secs * NANO / calls, sink);
+	}
+
+	/**
+	 * Count the positions a fixed-depth search visits with and without a
+	 * search feature.
+	 *
+	 * @param name    label for the output
+	 * @param board   board to search
+	 * @param feature name of the boolean property switching the feature
+	 */
+	static void search(final String name, final Board board, final String feature) {
+		long[] nodes = new long[2];
+		double[] secs = new double[2];
+		for (int i = 0; i < 2; i++) {
+			Properties props = Minimax.getConfig("default");
+			props.setProperty("depth", Integer.toString(SEARCH_DEPTH));
+			props.setProperty("time", NO_LIMIT);
+			props.setProperty("deadline", NO_LIMIT);
+			props.setProperty(feature, Boolean.toString(i == 1));
+			Minimax ai = new Minimax(null, props);
+			long start = System.nanoTime();
+			ai.takeTurn(board, Side.WHITE);
+			secs[i] = (System.nanoTime() - start) / NANO;
+			nodes[i] = ai.nodes();
+		}
+		System.out.printf(Locale.ROOT, "%-10s search(%d) %10d nodes %6.2f s without %s, %10d nodes %6.2f s with,"
+				+ " %.1f%% fewer%n", name, SEARCH_DEPTH, nodes[0], secs[0], feature, nodes[1], secs[1],
+				100.0 * (nodes[0] - nodes[1]) / nodes[0]);
+	}
+
+	/**
+	 * Measure how the time to reach a fixed depth scales with the number of
+	 * search threads, and the search overhead: how many more positions the
+	 * threads visit together than one thread alone. The shared scheduler is
+	 * resized to each number of threads in turn.
+	 *
+	 * @param name  label for the output
+	 * @param board board to search
+	 * @param mode  value of the parallel property
+	 */
+	static void scaling(final String name, final Board board, final String mode) {
+		new Minimax(null, scalingConfig(mode, 1, SEARCH_DEPTH)).takeTurn(board, Side.WHITE);
+		double serial = 0;
+		long serialNodes = 0;
+		for (int threads : THREADS) {
+			Scheduler.setParallelism(threads);
+			Minimax ai = new Minimax(null, scalingConfig(mode, threads, SCALING_DEPTH));
+			long start = System.nanoTime();
+			ai.takeTurn(board, Side.WHITE);
+			double secs = (System.nanoTime() - start) / NANO;
+			if (threads == 1) {
+				serial = secs;
+				serialNodes = ai.nodes();
+			}
+			System.out.printf(Locale.ROOT, "%-10s %s search(%d) %2d threads %6.2f s %10d nodes, speedup %.2f,"
+					+ " overhead %+.1f%%%n", name, mode, SCALING_DEPTH, threads, secs, ai.nodes(), serial / secs,
+					100.0 * (ai.nodes() - serialNodes) / serialNodes);
+		}
+	}
+
+	/**
+	 * Create the settings of a parallel fixed-depth search.
+	 *
+	 * @param mode    value of the parallel property
+	 * @param threads number of search threads
+	 * @param depth   depth to search
+	 * @return the settings
+	 */
+	static Properties scalingConfig(final String mode, final int threads, final int depth) {
+		Properties props = Minimax.getConfig("default");
+		props.setProperty("depth", Integer.toString(depth));
+		props.setProperty("time", NO_LIMIT);
+		props.setProperty("deadline", NO_LIMIT);
+		props.setProperty("parallel", mode);
+		props.setProperty("threads", Integer.toString(threads));
+		return props;
+	}
+
+	/**
+	 * Measure move generation throughput on a board, both as Move objects
+	 * and as the packed moves the search generates.
+	 *
+	 * @param name  label for the output
+	 * @param board board to generate moves on
+	 */
+	static void allMoves(final String name, final Board board) {
+		MoveBuffer buffer = new MoveBuffer();
+		for (boolean check : new boolean[] {false, true}) {
+			for (int i = 0; i < WARMUP; i++) {
+				board.allMoves(Side.WHITE, check);
+			}
+			long calls = 0;
+			long start = System.nanoTime();
+			long stop = start + RUN_TIME;
+			while (System.nanoTime() < stop) {
+				board.allMoves(Side.WHITE, check);
+				calls++;
+			}
+			double secs = (System.nanoTime() - start) / NANO;
+			System.out.printf(Locale.ROOT, "%-10s allMoves(check=%-5b) %12.0f calls/s%n", name, check, calls / secs);
+			for (int i = 0; i < WARMUP; i++) {
+				buffer.clear();
+				board.generate(Side.WHITE, check, buffer);
+			}
+			calls = 0;
+			start = System.nanoTime();
+			stop = start + RUN_TIME;
+			while (System.nanoTime() < stop) {
+				buffer.clear();
+				board.generate(Side.WHITE, check, buffer);
+				calls++;
+			}
+			secs = (System.nanoTime() - start) / NANO;
+			System.out.printf(Locale.ROOT, "%-10s generate(check=%-5b) %12.0f calls/s%n", name, check, calls / secs);
+		}
+	}
+
+	/**
+	 * Measure the off-board test on its own. Every slide from every square
+	 * of a position is walked twice. The first walk uses a padded mailbox and
+	 * stops at the border marker, as Board does. The second uses an unpadded
+	 * array and checks coordinates against the edges, as the Position-based
+	 * code did. Both walks load the same squares and stop at the same pieces,
+	 * so the difference between them is the cost of the bounds checks.
+	 *
+	 * @param name  label for the output
+	 * @param board position to walk
+	 */
+	static void offBoard(final String name, final Board board) {
+		int w = board.getWidth();
+		int h = board.getHeight();
+		int stride = w + 2;
+		Object[] padded = new Object[stride * (h + 2 * PAD_ROWS)];
+		Arrays.fill(padded, BORDER);
+		Object[] plain = new Object[w * h];
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				Piece p = board.getPiece(new Position(x, y));
+				padded[(y + PAD_ROWS) * stride + x + 1] = p;
+				plain[y * w + x] = p;
+			}
+		}
+		int[] offsets = new int[RAYS.length];
+		for (int i = 0; i < RAYS.length; i++) {
+			offsets[i] = RAYS[i][1] * stride + RAYS[i][0];
+		}
+		long sentinel = 0;
+		long bounded = 0;
+		for (int i = 0; i < WARMUP; i++) {
+			sentinel += sentinelWalk(padded, stride, w, h, offsets);
+			bounded += boundedWalk(plain, w, h);
+		}
+		if (sentinel != bounded) {
+			throw new IllegalStateException("walks disagree: " + sentinel + " != " + bounded);
+		}
+		double perSentinel = walkTime(() -> sentinelWalk(padded, stride, w, h, offsets));
+		double perBounded = walkTime(() -> boundedWalk(plain, w, h));
+		System.out.printf(Locale.ROOT, "%-10s slides %4d steps: sentinel %7.1f ns, bounds checks %7.1f ns (%.2fx)%n",
+				name, sentinel / WARMUP, perSentinel, perBounded, perBounded / perSentinel);
+	}
+
+	/**
+	 * Time repeated walks of a position.
+	 *
+	 * @param walk the walk, returning the number of squares it stepped on
+	 * @return nanoseconds per walk
+	 */
+	private static double walkTime(final LongSupplier walk) {
+		long calls = 0;
+		long sink = 0;
+		long start = System.nanoTime();
+		long stop = start + RUN_TIME;
+		while (System.nanoTime() < stop) {
+			sink += walk.getAsLong();
+			calls++;
+		}
+		long elapsed = System.nanoTime() - start;
+		if (sink == 0) {
+			System.out.print("");
+		}
+		return (double) elapsed / calls;
+	}
+
+	/**
+	 * Walk every slide from every square of a padded mailbox, stopping at
+	 * the first piece or at the border.
+	 *
+	 * @param squares mailbox with a border of BORDER squares
+	 * @param stride  mailbox row length
+	 * @param w       board width
+	 * @param h       board height
+	 * @param offsets square index step of each direction
+	 * @return number of squares stepped on
+	 */
+	private static long sentinelWalk(final Object[] squares, final int stride, final int w, final int h,
+			final int[] offsets) {
+		long n = 0;
+		for (int y = 0; y < h; y++) {
+			for (int from = (y + PAD_ROWS) * stride + 1; from < (y + PAD_ROWS) * stride + 1 + w; from++) {
+				for (int offset : offsets) {
+					for (int to = from + offset; squares[to] != BORDER; to += offset) {
+						n++;
+						if (squares[to] != null) {
+							break;
+						}
+					}
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Walk every slide from every square of an unpadded array, checking
+	 * each step against the edges and stopping at the first piece.
+	 *
+	 * @param squares the squares, row by row
+	 * @param w       board width
+	 * @param h       board height
+	 * @return number of squares stepped on
+	 */
+	private static long boundedWalk(final Object[] squares, final int w, final int h) {
+		long n = 0;
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				for (int[] ray : RAYS) {
+					int dx = ray[0];
+					int dy = ray[1];
+					for (int tx = x + dx, ty = y + dy; tx >= 0 && tx < w && ty >= 0 && ty < h; tx += dx, ty += dy) {
+						n++;
+						if (squares[ty * w + tx] != null) {
+							break;
+						}
+					}
+				}
+			}
+		}
+		return n;
+	}
+}
@@ -11,7 +11,7 @@ public class Config extends HashMap<String, Double> {
 
 	/** List of all currently existing properties. */
 	static final String[] PLIST = { "depth", "Pawn", "Knight", "Bishop", "Rook", "Queen", "King", "Chancellor",
-			"Archbishop", "material", "safety", "mobility" };
+			"Archbishop", "material", "safety", "mobility", "nullmove", "lmr", "lmrmoves" };
 
 	/** Version for object serialization. */
 	@Serial
@@ -1,31 +1,34 @@
 package com.nullprogram.chess.models.ai;
 
 import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Cancellation;
 import com.nullprogram.chess.models.Side;
 import com.nullprogram.chess.models.Game;
 import com.nullprogram.chess.models.Move;
-import com.nullprogram.chess.models.MoveList;
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.PackedMove;
 import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Player;
 import com.nullprogram.chess.models.Position;
-import com.nullprogram.chess.models.pieces.Archbishop;
-import com.nullprogram.chess.models.pieces.Bishop;
-import com.nullprogram.chess.models.pieces.Chancellor;
-import com.nullprogram.chess.models.pieces.King;
-import com.nullprogram.chess.models.pieces.Knight;
-import com.nullprogram.chess.models.pieces.Pawn;
-import com.nullprogram.chess.models.pieces.Queen;
-import com.nullprogram.chess.models.pieces.Rook;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.Random;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 /**
@@ -40,20 +43,48 @@ public class Minimax implements Player {
 	/** This class's Logger. */
 	private static final Logger LOG = Logger.getLogger("com.nullprogram.chess.models.ai.Minimax");
 
+	/** Both sides, without copying Side.values() on every evaluation. */
+	private static final Side[] SIDES = Side.values();
+
 	/** The number of threads to use. */
 	private static final int NTHREADS = Runtime.getRuntime().availableProcessors();
 
 	/** Local friendly game controller. */
 	private final Game game;
 
+	/** Calls off the search when the game ends or the JVM shuts down. */
+	private final Cancellation cancellation;
+
 	/** Side this AI plays. */
 	private Side side = null;
 
-	/** Thread manager. */
-	private final Executor executor = Executors.newFixedThreadPool(NTHREADS);
+	/** Number of search threads drawn from the shared scheduler (configured, all by default). */
+	private final int threads;
+
+	/** Whether the search runs on the calling thread alone (configured). */
+	private final boolean serial;
+
+	/** Whether every thread searches the whole tree (configured). */
+	private final boolean lazy;
+
+	/** Whether nodes fork their moves after the first (configured). */
+	private final boolean ybwc;
+
+	/** Boards and buffers for forked searches, kept for reuse. */
+	private final Queue<Helper> helpers = new ConcurrentLinkedQueue<>();
 
-	/** Values of each piece. */
-	private final Map<Class<?>, Double> values;
+	/** The position of the current turn, copied for forked searches. */
+	private Board rootBoard;
+
+	/** Shuffles the root moves so equal moves are picked at random. */
+	private final Random rng = new Random();
+
+	/**
+	 * Search buffers not in use by any task, kept for reuse. They belong to
+	 * this player rather than to the shared scheduler's threads, so they go
+	 * when it does.
+	 */
+	private final Queue<SearchStack> stacks = new ConcurrentLinkedQueue<>();
 
 	/** Divisor for milliseconds. */
 	static final double MILLI = 1000.0;
@@ -70,6 +101,186 @@ public class Minimax implements Player {
 	/** Mobility score weight (configured). */
 	private final double wMobility;
 
+	/** Time after which no new iteration is started, in nanoseconds (configured). */
+	private final long budget;
+
+	/** Time after which the search is stopped, in nanoseconds (configured). */
+	private final long deadline;
+
+	/** Set to abandon the current search. */
+	private volatile boolean stopped;
+
+	/** Plies of captures and promotions searched past the depth (configured). */
+	private final int quiescence;
+
+	/** Material a capture must be able to gain beyond its victim (configured). */
+	private final double delta;
+
+	/** Values of each piece type, by ordinal. */
+	private final double[] typeValues = new double[PieceType.COUNT];
+
+	/** Depth reduction of the null-move search, 0 for none (configured). */
+	private final int nullMove;
+
+	/** Scale of late move reductions, 0 for none (configured). */
+	private final double lmr;
+
+	/** Moves searched at full depth before any is reduced (configured). */
+	private final int lmrMoves;
+
+	/** Futility margin in pawns per ply, 0 for none (configured). */
+	private final double futility;
+
+	/** Reverse futility margin in pawns per ply, 0 for none (configured). */
+	private final double reverseFutility;
+
+	/** Razoring margin in pawns per ply, 0 for none (configured). */
+	private final double razoring;
+
+	/** Whether lines that cannot mate sooner are cut off (configured). */
+	private final boolean mateDistance;
+
+	/** Whether later children get null-window searches (configured). */
+	private final boolean pvs;
+
+	/** Half-width of the root's first aspiration window (configured). */
+	private final double aspiration;
+
+	/** Factor the aspiration window widens by on failing (configured). */
+	private final double widen;
+
+	/** Root moves of the current turn. */
+	private MoveBuffer rootMoves;
+
+	/** A board for each root move of the current turn. */
+	private Board[] rootBoards;
+
+	/** Score of each root move found by the iteration in progress. */
+	private double[] found;
+
+	/** Bound each root move's null-window or re-search was made against. */
+	private double[] bounds;
+
+	/** Whether each root move has been searched with a window open above. */
+	private boolean[] wide;
+
+	/**
+	 * Best exact score among the root moves finished so far this iteration,
+	 * as the bits of a double, raised by the root searches themselves.
+	 */
+	private final AtomicLong rootAlpha = new AtomicLong(Double.doubleToLongBits(Double.NEGATIVE_INFINITY));
+
+	/** Depth of the deepest iteration finished with every thread on the whole tree. */
+	private int sharedDepth;
+
+	/** Best move found by that iteration. */
+	private int sharedMove;
+
+	/** Score of that move. */
+	private double sharedScore;
+
+	/** Searches of the current turn's root moves. */
+	private CompletionService<Integer> service;
+
+	/** Every search submitted this turn, to cancel those not yet begun. */
+	private final List<Future<Integer>> tasks = new ArrayList<>();
+
+	/** System.nanoTime() when the current turn began. */
+	private long start;
+
+	/** Whether children are searched best guess first (configured). */
+	private final boolean ordering;
+
+	/** Scores moves for ordering. */
+	private final MoveOrder order;
+
+	/** Number of the current turn, telling search threads to age their tables. */
+	private int turns;
+
+	/** Positions visited during the current turn. */
+	private final LongAdder nodes = new LongAdder();
+
+	/** Positions already searched, shared by every worker thread. */
+	private final TranspositionTable table;
+
+	/** Transposition table size when unconfigured, as a power of two. */
+	private static final String DEFAULT_TABLE = "18";
+
+	/** Time budget when unconfigured, in seconds. */
+	private static final String DEFAULT_TIME = "5";
+
+	/** Deadline when unconfigured, in seconds. */
+	private static final String DEFAULT_DEADLINE = "15";
+
+	/** Quiescence plies when unconfigured. */
+	private static final String DEFAULT_QUIESCENCE = "6";
+
+	/** Delta pruning margin when unconfigured. */
+	private static final String DEFAULT_DELTA = "2";
+
+	/** Null-move reduction when unconfigured. */
+	private static final String DEFAULT_NULLMOVE = "2";
+
+	/** Late move reduction scale when unconfigured. */
+	private static final String DEFAULT_LMR = "1";
+
+	/** Full-depth moves before late move reductions when unconfigured. */
+	private static final String DEFAULT_LMRMOVES = "3";
+
+	/** Shallowest depth at which late moves are reduced. */
+	private static final int LMR_DEPTH = 3;
+
+	/** Futility margin when unconfigured. */
+	private static final String DEFAULT_FUTILITY = "1";
+
+	/** Reverse futility margin when unconfigured. */
+	private static final String DEFAULT_REVERSE_FUTILITY = "1";
+
+	/** Razoring margin when unconfigured. */
+	private static final String DEFAULT_RAZORING = "2";
+
+	/** Deepest remaining depth pruned by the static score. */
+	private static final int FRONTIER = 3;
+
+	/** Score of delivering mate, less the plies it takes. */
+	private static final double MATE = 1e6;
+
+	/** Scores beyond this are mates, whatever their distance. */
+	private static final double MATE_BOUND = MATE / 2;
+
+	/** Aspiration window half-width when unconfigured. */
+	private static final String DEFAULT_ASPIRATION = "0.5";
+
+	/** Aspiration window widening factor when unconfigured. */
+	private static final String DEFAULT_WIDEN = "4";
+
+	/** Aspiration window half-width past which the window is opened fully. */
+	private static final double ASPIRATION_LIMIT = 100;
+
+	/** Nanoseconds in a second. */
+	private static final double NANO = 1e9;
+
+	/** Interval between progress updates, in milliseconds. */
+	private static final long TICK = 100;
+
+	/** Positions between checks for cancellation, less one (a power of two). */
+	private static final long CANCEL_POLL = 1023;
+
+	/** No parallel search: the calling thread searches alone. */
+	private static final String PARALLEL_OFF = "off";
+
+	/** Parallel search splitting the root moves among the threads. */
+	private static final String PARALLEL_ROOT = "root";
+
+	/** Parallel search with every thread on the whole tree. */
+	private static final String PARALLEL_LAZY = "lazy";
+
+	/** Parallel search forking each node's moves after the first. */
+	private static final String PARALLEL_YBWC = "ybwc";
+
+	/** Shallowest remaining depth at which a node forks its moves. */
+	private static final int SPLIT_DEPTH = 3;
+
 	/** Name of the default mode for IA */
 	private static final String NAMEDEFAULTIA = "default";
 
@@ -100,22 +311,44 @@ public class Minimax implements Player {
 	 */
 	public Minimax(final Game active, final Properties props) {
 		game = active;
-		values = new HashMap<>();
-
-		/* Piece values */
-		values.put(Pawn.class, Double.parseDouble(props.getProperty("Pawn")));
-		values.put(Knight.class, Double.parseDouble(props.getProperty("Knight")));
-		values.put(Bishop.class, Double.parseDouble(props.getProperty("Bishop")));
-		values.put(Rook.class, Double.parseDouble(props.getProperty("Rook")));
-		values.put(Queen.class, Double.parseDouble(props.getProperty("Queen")));
-		values.put(King.class, Double.parseDouble(props.getProperty("King")));
-		values.put(Chancellor.class, Double.parseDouble(props.getProperty("Chancellor")));
-		values.put(Archbishop.class, Double.parseDouble(props.getProperty("Archbishop")));
+		cancellation = game != null ? game.getCancellation() : new Cancellation();
 
 		maxDepth = (int) Double.parseDouble(props.getProperty("depth"));
 		wMaterial = Double.parseDouble(props.getProperty("material"));
 		wSafety = Double.parseDouble(props.getProperty("safety"));
 		wMobility = Double.parseDouble(props.getProperty("mobility"));
+		budget = (long) (Double.parseDouble(props.getProperty("time", DEFAULT_TIME)) * NANO);
+		deadline = Math.max(budget,
+				(long) (Double.parseDouble(props.getProperty("deadline", DEFAULT_DEADLINE)) * NANO));
+		quiescence = (int) Double.parseDouble(props.getProperty("quiescence", DEFAULT_QUIESCENCE));
+		delta = Double.parseDouble(props.getProperty("delta", DEFAULT_DELTA));
+		/* Piece values */
+		for (PieceType type : PieceType.values()) {
+			typeValues[type.ordinal()] = Double.parseDouble(props.getProperty(type.getName()));
+		}
+		nullMove = (int) Double.parseDouble(props.getProperty("nullmove", DEFAULT_NULLMOVE));
+		lmr = Double.parseDouble(props.getProperty("lmr", DEFAULT_LMR));
+		lmrMoves = Math.max(1, (int) Double.parseDouble(props.getProperty("lmrmoves", DEFAULT_LMRMOVES)));
+		futility = Double.parseDouble(props.getProperty("futility", DEFAULT_FUTILITY));
+		reverseFutility = Double.parseDouble(props.getProperty("reversefutility", DEFAULT_REVERSE_FUTILITY));
+		razoring = Double.parseDouble(props.getProperty("razoring", DEFAULT_RAZORING));
+		mateDistance = Boolean.parseBoolean(props.getProperty("matedistance", "true"));
+		pvs = Boolean.parseBoolean(props.getProperty("pvs", "true"));
+		aspiration = Double.parseDouble(props.getProperty("aspiration", DEFAULT_ASPIRATION));
+		widen = Math.max(2, Double.parseDouble(props.getProperty("widen", DEFAULT_WIDEN)));
+		ordering = Boolean.parseBoolean(props.getProperty("ordering", "true"));
+		order = new MoveOrder(typeValues);
+		table = new TranspositionTable((int) Double.parseDouble(props.getProperty("table", DEFAULT_TABLE)));
+		int configured = (int) Double.parseDouble(props.getProperty("threads", "0"));
+		threads = configured > 0 ? configured : NTHREADS;
+		String mode = props.getProperty("parallel", PARALLEL_ROOT);
+		if (!PARALLEL_OFF.equals(mode) && !PARALLEL_ROOT.equals(mode) && !PARALLEL_LAZY.equals(mode)
+				&& !PARALLEL_YBWC.equals(mode)) {
+			LOG.warning("unknown parallel search " + mode + ", splitting at the root");
+		}
+		serial = PARALLEL_OFF.equals(mode);
+		lazy = PARALLEL_LAZY.equals(mode);
+		ybwc = PARALLEL_YBWC.equals(mode);
 	}
 
 	/**
@@ -152,12 +385,19 @@ public class Minimax implements Player {
 	public final Move takeTurn(final Board board, final Side currentSide) {
 		side = currentSide;
 
-		/* Best move, the selected move. */
-		Move bestMove;
-
 		/* Gather up every move. */
-		MoveList moves = board.allMoves(side, true);
-		moves.shuffle();
+		MoveBuffer moves = new MoveBuffer();
+		board.generate(side, true, moves);
+		moves.shuffle(rng);
+		final int count = moves.size();
+		if (count == 0) {
+			return null;
+		}
+		rootMoves = moves;
+		found = new double[count];
+		bounds = new double[count];
+		wide = new boolean[count];
+		final double[] scores = new double[count];
 
 		/* Initialize the shared structures. */
 		if (game != null) {
@@ -165,93 +405,1096 @@ public class Minimax implements Player {
 			game.setStatus("Thinking ...");
 		}
 		long startTime = System.currentTimeMillis();
+		start = System.nanoTime();
+		table.newSearch();
+		nodes.reset();
+		stopped = cancellation.isCancelled();
+		tasks.clear();
+		sharedDepth = 0;
+		turns++;
+		/* Forked moves go to any free worker, so the lane need only hold the root. */
+		service = serial ? null : new ExecutorCompletionService<>(Scheduler.shared().lane(ybwc ? 1 : threads));
+
+		/*
+		 * Each root move, or with every thread on the whole tree each thread,
+		 * gets a board of its own, reused by every iteration.
+		 */
+		rootBoards = new Board[lazy ? threads : serial || ybwc ? 1 : count];
+		for (int i = 0; i < rootBoards.length; i++) {
+			rootBoards[i] = board.copy();
+			rootBoards[i].reserve(maxDepth);
+		}
 
-		/* Spin off threads to evaluate each move's tree. */
-		CompletionService<Move> service = new ExecutorCompletionService<>(executor);
-		int submitted = 0;
-		bestMove = null;
-		for (final Move move : moves) {
-			final Board callboard = board.copy();
-
-			Move finalBestMove = bestMove;
-			service.submit(() -> {
-				callboard.move(move);
-				double beta = Double.POSITIVE_INFINITY;
-				if (finalBestMove != null) {
-					beta = -finalBestMove.getScore();
+		/*
+		 * Search one ply deeper each iteration, best moves of the last
+		 * iteration first, until the budget is spent or the deadline stops an
+		 * iteration part way.
+		 */
+		int depth = 0;
+		int best = -1;
+		double score = 0;
+		boolean partial = false;
+		if (ybwc) {
+			rootBoard = board.copy();
+		}
+		boolean whole = serial || lazy || ybwc;
+		if (serial) {
+			deepen(0);
+		} else if (whole) {
+			searchWhole(lazy ? threads : 1);
+		}
+		if (whole) {
+			depth = sharedDepth;
+			score = sharedScore;
+			for (int i = 0; i < count && depth > 0; i++) {
+				if (moves.get(i) == sharedMove) {
+					best = i;
 				}
-				double v = search(callboard, maxDepth - 1, Piece.opposite(side), Double.NEGATIVE_INFINITY, beta);
-				move.setScore(-v);
-				return move;
-			});
-			submitted++;
+			}
+		}
+		while (!whole && depth < maxDepth && !stopped && System.nanoTime() - start < budget) {
+			int plies = depth + 1;
+			int m = iterate(plies, depth == 0 ? Double.NaN : score);
+			if (m < 0) {
+				break;
+			} else if (!stopped) {
+				System.arraycopy(found, 0, scores, 0, count);
+				sortRoot(moves, scores, m);
+				depth = plies;
+				best = 0;
+				score = scores[0];
+				LOG.info("depth " + depth + ": " + score + " "
+						+ principalVariation(rootBoards[0], moves.get(0), depth) + " (" + nodes.sum() + " nodes)");
+			} else {
+				best = m;
+				score = found[best];
+				partial = true;
+			}
+		}
+
+		long time = (System.currentTimeMillis() - startTime);
+		String plies = partial ? depth + "+ plies" : depth + " plies";
+		String displayMessage = "AI took " + (time / MILLI) + " seconds (" +
+				(serial ? 1 : threads) + " threads, " + plies + ", " + nodes.sum() + " nodes, " + table.report() + ", " +
+				Scheduler.shared().report() + ")";
+		LOG.info(displayMessage);
+		if (best < 0) {
+			LOG.warning("no move finished searching before the deadline");
+			best = 0;
+		}
+		Move bestMove = board.toMove(moves.get(best));
+		bestMove.setScore(score);
+		rootBoards = null;
+		rootBoard = null;
+		return bestMove;
+	}
+
+	/**
+	 * Search every root move to a depth, leaving their scores in found.
+	 *
+	 * With principal variation search, the first move, the best of the last
+	 * iteration, is searched alone in an aspiration window around its last
+	 * score, widening the window until the score falls inside it. The rest
+	 * are then searched in parallel with null windows, which only show
+	 * whether a move beats the best so far; those that do are searched again
+	 * with a window open above. A move that does not beat the best is left
+	 * with the bound it failed against as its score. Otherwise every move is
+	 * searched with a full window.
+	 *
+	 * Every exact score is published as the root alpha the moment its search
+	 * finishes, and the searches still running read it at each node, so a
+	 * move found to be better narrows the windows of all the others at once
+	 * and cuts short the lines it has already refuted.
+	 *
+	 * If the search is stopped part way, the best move finished is still a
+	 * safe choice once the first move has finished: every other move was
+	 * either searched with a window at least as wide or shown to be worse.
+	 *
+	 * @param plies depth to search
+	 * @param guess score of the last iteration, or NaN for none
+	 * @return index of the best root move finished, or -1 if none can be
+	 *         trusted
+	 */
+	private int iterate(final int plies, final double guess) {
+		int count = rootMoves.size();
+		Arrays.fill(found, Double.NEGATIVE_INFINITY);
+		Arrays.fill(wide, !pvs);
+		Arrays.fill(bounds, Double.NEGATIVE_INFINITY);
+		rootAlpha.set(Double.doubleToLongBits(Double.NEGATIVE_INFINITY));
+		int best = -1;
+		int pending = 0;
+		if (pvs) {
+			double width = aspiration;
+			double lo = Double.NEGATIVE_INFINITY;
+			double hi = Double.POSITIVE_INFINITY;
+			if (!Double.isNaN(guess) && aspiration > 0) {
+				lo = guess - width;
+				hi = guess + width;
+			}
+			while (true) {
+				submit(0, plies, lo, hi);
+				if (await() < 0) {
+					return -1;
+				}
+				if (found[0] <= lo && lo > Double.NEGATIVE_INFINITY) {
+					width *= widen;
+					lo = width > ASPIRATION_LIMIT ? Double.NEGATIVE_INFINITY : guess - width;
+				} else if (found[0] >= hi && hi < Double.POSITIVE_INFINITY) {
+					width *= widen;
+					hi = width > ASPIRATION_LIMIT ? Double.POSITIVE_INFINITY : guess + width;
+				} else {
+					break;
+				}
+			}
+			best = 0;
+			for (int i = 1; i < count; i++) {
+				bounds[i] = found[0];
+				submit(i, plies, found[0], Math.nextUp(found[0]));
+				pending++;
+			}
+		} else {
+			for (int i = 0; i < count; i++) {
+				submit(i, plies, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+				pending++;
+			}
 		}
 
 		/* Gather up results and pick the best move. */
-		for (int i = 0; i < submitted; i++) {
-			try {
-				Move m = service.take().get();
-				if (bestMove == null || m.getScore() > bestMove.getScore()) {
-					bestMove = m;
+		boolean leader = pvs;
+		while (pending > 0) {
+			pending--;
+			int m = await();
+			if (m < 0) {
+				continue;
+			}
+			leader |= m == 0;
+			if (found[m] <= bounds[m] && !wide[m]) {
+				continue;
+			}
+			if (!wide[m]) {
+				/* Failed high: beats the best, so find out by how much. */
+				wide[m] = true;
+				bounds[m] = found[best];
+				submit(m, plies, found[best], Double.POSITIVE_INFINITY);
+				pending++;
+			} else if (best < 0 || found[m] > found[best]) {
+				best = m;
+			}
+		}
+		return leader || plies == 1 ? best : -1;
+	}
+
+	/**
+	 * Start the search of a root move with the given window.
+	 *
+	 * @param index index of the root move
+	 * @param plies depth to search
+	 * @param alpha lower bound of the window
+	 * @param beta  upper bound of the window
+	 */
+	private void submit(final int index, final int plies, final double alpha, final double beta) {
+		final Board callboard = rootBoards[index];
+		final int move = rootMoves.get(index);
+		final double[] scores = found;
+		final double[] floors = bounds;
+		final boolean[] opened = wide;
+		final int turn = turns;
+		tasks.add(service.submit(() -> {
+			SearchStack stack = stack();
+			stack.begin(turn, plies, quiescence);
+			long visited = stack.nodes();
+			callboard.makeMove(move);
+			double v = search(stack, callboard, plies - 1, Piece.opposite(side), -beta, -alpha, true);
+			callboard.unmakeMove();
+			nodes.add(stack.nodes() - visited);
+			stacks.add(stack);
+			if (stopped) {
+				return -1;
+			}
+			scores[index] = -v;
+			boolean exact = -v > alpha && -v < beta;
+			if (!(exact && raiseRootAlpha(-v)) && -v <= rootAlpha()) {
+				/* No better than a move already finished: fail low against it. */
+				floors[index] = rootAlpha();
+				opened[index] = false;
+			}
+			return index;
+		}));
+	}
+
+	/**
+	 * Wait for the next root move search to finish.
+	 *
+	 * @return index of the root move, or -1 if its search was stopped or
+	 *         failed
+	 */
+	private int await() {
+		try {
+			return next(service, start);
+		} catch (ExecutionException e) {
+			LOG.warning("move went unevaluated: " + e.getMessage());
+		} catch (InterruptedException e) {
+			LOG.warning("search interrupted: " + e.getMessage());
+			stopped = true;
+			Thread.currentThread().interrupt();
+		}
+		return -1;
+	}
+
+	/**
+	 * Search the whole tree from each of a number of threads.
+	 *
+	 * With more than one (Lazy SMP), each thread deepens on its own board,
+	 * the odd ones a ply ahead of the even ones, and they share nothing but
+	 * the transposition table. What one thread stores there spares the
+	 * others the work, or sends them down other lines, so together they
+	 * reach a depth sooner than one thread alone. The search ends when the
+	 * first thread runs out of time or depth.
+	 *
+	 * With forking nodes, one thread deepens and the pool's other workers
+	 * steal the moves it forks.
+	 *
+	 * @param count number of threads searching
+	 */
+	private void searchWhole(final int count) {
+		for (int i = 0; i < count; i++) {
+			final int id = i;
+			tasks.add(service.submit(() -> deepen(id)));
+		}
+		await();
+		stopped = true;
+		for (int i = 1; i < count; i++) {
+			await();
+		}
+	}
+
+	/**
+	 * Deepen the search of the whole tree on one thread, offering each
+	 * finished iteration as the result.
+	 *
+	 * @param id number of the thread, from 0
+	 * @return the thread's number
+	 */
+	private int deepen(final int id) {
+		SearchStack stack = stack();
+		Board b = rootBoards[id];
+		MoveBuffer moves = new MoveBuffer(rootMoves.size());
+		for (int i = 0; i < rootMoves.size(); i++) {
+			moves.add(rootMoves.get(i));
+		}
+		double[] scores = new double[moves.size()];
+		double guess = Double.NaN;
+		int first = 1 + id % 2;
+		for (int plies = first; plies <= maxDepth; plies++) {
+			if (stopped || plies > first && System.nanoTime() - start >= budget) {
+				break;
+			}
+			long visited = stack.nodes();
+			stack.begin(turns, plies, quiescence);
+			guess = aspirate(stack, b, moves, scores, plies, guess);
+			nodes.add(stack.nodes() - visited);
+			if (stopped) {
+				break;
+			}
+			offer(b, plies, moves.get(0), guess);
+		}
+		stacks.add(stack);
+		return id;
+	}
+
+	/**
+	 * Take search buffers for a task.
+	 *
+	 * @return buffers no other task is using
+	 */
+	private SearchStack stack() {
+		SearchStack stack = stacks.poll();
+		return stack != null ? stack : new SearchStack();
+	}
+
+	/**
+	 * Search the root moves on one thread in an aspiration window around
+	 * the last iteration's score, widening it until the score falls inside,
+	 * and sort them best first.
+	 *
+	 * @param stack  buffers of the searching thread
+	 * @param b      board at the root position
+	 * @param moves  the root moves, best guess first
+	 * @param scores their scores, sorted along with them
+	 * @param plies  depth to search
+	 * @param guess  score of the last iteration, or NaN for none
+	 * @return score of the best move
+	 */
+	private double aspirate(final SearchStack stack, final Board b, final MoveBuffer moves, final double[] scores,
+			final int plies, final double guess) {
+		double width = aspiration;
+		double lo = Double.NEGATIVE_INFINITY;
+		double hi = Double.POSITIVE_INFINITY;
+		if (pvs && !Double.isNaN(guess) && aspiration > 0) {
+			lo = guess - width;
+			hi = guess + width;
+		}
+		while (true) {
+			int best = searchRoot(stack, b, moves, scores, plies, lo, hi);
+			double v = scores[best];
+			if (stopped) {
+				return v;
+			} else if (v <= lo && lo > Double.NEGATIVE_INFINITY) {
+				width *= widen;
+				lo = width > ASPIRATION_LIMIT ? Double.NEGATIVE_INFINITY : guess - width;
+			} else if (v >= hi && hi < Double.POSITIVE_INFINITY) {
+				width *= widen;
+				hi = width > ASPIRATION_LIMIT ? Double.POSITIVE_INFINITY : guess + width;
+			} else {
+				sortRoot(moves, scores, best);
+				return v;
+			}
+		}
+	}
+
+	/**
+	 * Search the root moves in turn on one thread, later moves with null
+	 * windows under principal variation search.
+	 *
+	 * @param stack  buffers of the searching thread
+	 * @param b      board at the root position
+	 * @param moves  the root moves
+	 * @param scores left holding each move's score, or the bound it failed
+	 *               against
+	 * @param plies  depth to search
+	 * @param alpha  lower bound of the window
+	 * @param beta   upper bound of the window
+	 * @return index of the best move
+	 */
+	private int searchRoot(final SearchStack stack, final Board b, final MoveBuffer moves, final double[] scores,
+			final int plies, final double alpha, final double beta) {
+		Arrays.fill(scores, Double.NEGATIVE_INFINITY);
+		Side opps = Piece.opposite(side);
+		double best = Double.NEGATIVE_INFINITY;
+		int index = 0;
+		for (int i = 0; i < moves.size() && !stopped; i++) {
+			double floor = Math.max(alpha, best);
+			b.makeMove(moves.get(i));
+			double v;
+			if (pvs && i > 0) {
+				v = -search(stack, b, plies - 1, opps, -Math.nextUp(floor), -floor, true);
+				if (v > floor && v < beta && !stopped) {
+					v = -search(stack, b, plies - 1, opps, -beta, -floor, true);
 				}
-			} catch (ExecutionException e) {
-				LOG.warning("move went unevaluated: " + e.getMessage());
-			} catch (InterruptedException e) {
-				LOG.warning("move went unevaluated: " + e.getMessage());
-				Thread.currentThread().interrupt();
+			} else {
+				v = -search(stack, b, plies - 1, opps, -beta, -floor, true);
+			}
+			b.unmakeMove();
+			scores[i] = v;
+			if (v > best) {
+				best = v;
+				index = i;
+			}
+			if (best >= beta) {
+				break;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Take a finished iteration as the result if it is the deepest yet.
+	 *
+	 * @param b     the finishing thread's board, at the root position
+	 * @param plies depth of the iteration
+	 * @param move  best move found
+	 * @param score its score
+	 */
+	private synchronized void offer(final Board b, final int plies, final int move, final double score) {
+		if (plies <= sharedDepth) {
+			return;
+		}
+		sharedDepth = plies;
+		sharedMove = move;
+		sharedScore = score;
+		LOG.info("depth " + plies + ": " + score + " " + principalVariation(b, move, plies) + " (" + nodes.sum()
+				+ " nodes)");
+	}
+
+	/**
+	 * Follow the transposition table's best moves from a root move.
+	 *
+	 * @param b     a board at the root position, left there
+	 * @param first the root move
+	 * @param plies most moves to follow
+	 * @return the moves, separated by spaces
+	 */
+	private String principalVariation(final Board b, final int first, final int plies) {
+		StringBuilder pv = new StringBuilder();
+		MoveBuffer list = new MoveBuffer();
+		Side s = side;
+		int move = first;
+		int made = 0;
+		while (move != PackedMove.NONE) {
+			if (made > 0) {
+				pv.append(' ');
+			}
+			pv.append(b.toMove(move));
+			b.makeMove(move);
+			made++;
+			s = Piece.opposite(s);
+			int hashMove = made < plies ? TranspositionTable.move(table.probe(b.hash())) : PackedMove.NONE;
+			move = PackedMove.NONE;
+			if (hashMove != PackedMove.NONE) {
+				list.clear();
+				b.generate(s, true, list);
+				for (int i = 0; i < list.size(); i++) {
+					if ((list.get(i) & TranspositionTable.MOVE_MASK) == hashMove) {
+						move = list.get(i);
+					}
+				}
+			}
+		}
+		while (made-- > 0) {
+			b.unmakeMove();
+		}
+		return pv.toString();
+	}
+
+	/**
+	 * Get the number of positions visited by the last turn.
+	 *
+	 * @return positions visited
+	 */
+	public final long nodes() {
+		return nodes.sum();
+	}
+
+	/**
+	 * Wait for the next root move to finish. While waiting, keep the progress
+	 * bar showing the time used against the budget, and stop the search once
+	 * the deadline has passed or the game is called off, cancelling the
+	 * searches still waiting for a thread.
+	 *
+	 * @param service the root move searches
+	 * @param start   System.nanoTime() when the turn began
+	 * @return the index of the finished move, or -1 if it was stopped
+	 * @throws ExecutionException   if the move's search failed
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private int next(final CompletionService<Integer> service, final long start)
+			throws ExecutionException, InterruptedException {
+		while (true) {
+			Future<Integer> done = service.poll(TICK, TimeUnit.MILLISECONDS);
+			long elapsed = System.nanoTime() - start;
+			if (elapsed >= deadline || cancellation.isCancelled()) {
+				stopped = true;
+			}
+			if (stopped) {
+				/* Spare the workers searches that would give up at once. */
+				for (Future<Integer> task : tasks) {
+					task.cancel(false);
+				}
+				tasks.clear();
 			}
 			if (game != null) {
-				game.setProgress(i / (1.0f * (submitted - 1)));
+				game.setProgress((float) Math.min(1.0, (double) elapsed / budget));
+			}
+			if (done != null) {
+				return done.isCancelled() ? -1 : done.get();
 			}
 		}
+	}
 
-        long time = (System.currentTimeMillis() - startTime);
-		String displayMessage = "AI took " + (time / MILLI) + " seconds (" +
-				NTHREADS + " threads, " + maxDepth + " plies)";
-        LOG.info(displayMessage);
-        return bestMove;
-    }
+	/**
+	 * Sort the root moves best first, keeping the shuffled order among equal
+	 * scores so ties are still broken at random. The best move goes first
+	 * even if a move that only failed against its score ties with it.
+	 *
+	 * @param moves  the root moves
+	 * @param scores their scores, sorted along with them
+	 * @param best   index of the best move
+	 */
+	private static void sortRoot(final MoveBuffer moves, final double[] scores, final int best) {
+		for (int j = best; j > 0; j--) {
+			double v = scores[j];
+			scores[j] = scores[j - 1];
+			scores[j - 1] = v;
+			moves.swap(j, j - 1);
+		}
+		for (int i = 2; i < scores.length; i++) {
+			for (int j = i; j > 1 && scores[j] > scores[j - 1]; j--) {
+				double v = scores[j];
+				scores[j] = scores[j - 1];
+				scores[j - 1] = v;
+				moves.swap(j, j - 1);
+			}
+		}
+	}
 
 	/**
 	 * Recursive move searching.
 	 *
+	 * @param stack buffers of the searching thread
 	 * @param b     board to search
 	 * @param depth current depth
 	 * @param s     side for current move
 	 * @param alpha lower bound to check
 	 * @param beta  upper bound to check
+	 * @param pass  whether passing the turn may be tried, false right after a pass
 	 * @return best valuation found at lowest depth
 	 */
-	private double search(final Board b, final int depth, final Side s, final double alpha, final double beta) {
-		if (depth == 0) {
-			double v = valuate(b);
-			return (s != side) ? -v : v;
+	private double search(final SearchStack stack, final Board b, final int depth, final Side s, final double alpha,
+			final double beta, final boolean pass) {
+		/* Nothing at or below the root's best so far can change the choice. */
+		double floor = rootAlpha();
+		double lo = s == side ? Math.max(alpha, floor) : alpha;
+		double hi = s == side ? beta : Math.min(beta, -floor);
+		if (halted(stack) || lo >= hi) {
+			return s == side ? lo : hi;
+		}
+		stack.visit();
+		if (depth <= 0) {
+			return quiesce(stack, b, depth, s, lo, hi);
+		}
+		int ply = b.madeCount();
+		if (mateDistance) {
+			/* Even mating next move, or being mated now, is out of bounds. */
+			if (MATE - ply - 1 <= lo) {
+				return lo;
+			} else if (ply - MATE >= hi) {
+				return hi;
+			}
+		}
+		long key = b.hash();
+		long entry = table.probe(key);
+		int hashMove = TranspositionTable.move(entry);
+		/* NaN if too shallow, or overwritten since the probe. */
+		double stored = entry != 0 && TranspositionTable.depth(entry) >= depth
+				? table.score(key, entry) : Double.NaN;
+		if (!Double.isNaN(stored)) {
+			double v = fromTable(stored, ply);
+			switch (TranspositionTable.bound(entry)) {
+			case TranspositionTable.EXACT:
+				table.cutoff();
+				return Math.max(lo, v);
+			case TranspositionTable.LOWER:
+				if (v >= hi) {
+					table.cutoff();
+					return v;
+				}
+				break;
+			default:
+				if (v <= lo) {
+					table.cutoff();
+					return lo;
+				}
+				break;
+			}
 		}
 		Side opps = Piece.opposite(s); // opposite side
-		double best = alpha;
-		MoveList list = b.allMoves(s, true);
-		for (Move move : list) {
-			b.move(move);
-			best = Math.max(best, -search(b, depth - 1, opps, -beta, -best));
-			b.undo();
-			/* alpha-beta prune */
-			if (beta <= best) {
+		boolean check = inCheck(b, s);
+
+		/*
+		 * Near the leaves, a static score far outside the window is unlikely
+		 * to be brought back inside it by the few plies left: far above
+		 * hi, take the cutoff (reverse futility); far below lo, see if
+		 * captures alone can reach lo (razoring), and otherwise try only
+		 * the moves that might (futility).
+		 */
+		boolean futile = false;
+		if (depth <= FRONTIER && !check && (futility > 0 || reverseFutility > 0 || razoring > 0)) {
+			double stand = valuate(stack, b);
+			if (s != side) {
+				stand = -stand;
+			}
+			if (reverseFutility > 0 && Math.abs(hi) < MATE_BOUND
+					&& stand - reverseFutility * depth * wMaterial >= hi) {
+				return hi;
+			}
+			if (razoring > 0 && Math.abs(lo) < MATE_BOUND && stand + razoring * depth * wMaterial <= lo) {
+				double v = quiesce(stack, b, 0, s, lo, Math.nextUp(lo));
+				if (halted(stack) || v <= lo) {
+					return lo;
+				}
+			}
+			futile = futility > 0 && Math.abs(lo) < MATE_BOUND && stand + futility * depth * wMaterial <= lo;
+		}
+
+		/*
+		 * Null move: if passing the turn still scores at least hi in a
+		 * shallower search, a real move surely would. Zugzwang, where passing
+		 * would be the best move, is likely only in check or with nothing but
+		 * king and pawns, so those are never tried.
+		 */
+		if (pass && nullMove > 0 && depth > nullMove && hi < Double.POSITIVE_INFINITY && !check
+				&& hasPieces(b, s)) {
+			b.makeNullMove();
+			double v = -search(stack, b, depth - 1 - nullMove, opps, -hi, -Math.nextDown(hi), false);
+			b.unmakeMove();
+			if (halted(stack)) {
+				return lo;
+			}
+			if (v >= hi) {
+				return hi;
+			}
+		}
+
+		double best = lo;
+		int bestMove = 0;
+		MoveBuffer list = stack.moves(depth);
+		b.generate(s, true, list);
+		if (list.size() == 0) {
+			/* Checkmate, the sooner the worse, or stalemate. */
+			double v = check ? ply - MATE : 0;
+			table.store(key, depth, TranspositionTable.EXACT, toTable(v, ply), 0);
+			return Math.max(lo, Math.min(hi, v));
+		}
+		if (ordering) {
+			order.score(stack, b, list, depth, s, hashMove);
+		}
+		for (int i = 0; i < list.size(); i++) {
+			if (ybwc && i == 1 && depth >= SPLIT_DEPTH) {
+				/* The eldest brother is searched: the rest may go in parallel. */
+				SplitPoint point = new SplitPoint(stack.split(), b, depth, s, best, hi, check, futile,
+						stack.root());
+				Sibling[] siblings = new Sibling[list.size() - 1];
+				for (int j = 1; j < list.size(); j++) {
+					siblings[j - 1] = new Sibling(point, j, ordering ? stack.pick(depth, list, j) : list.get(j));
+					siblings[j - 1].fork();
+				}
+				int cutoff = PackedMove.NONE;
+				for (Sibling sibling : siblings) {
+					double v = sibling.join();
+					if (cutoff != PackedMove.NONE || Double.isNaN(v) || v <= best) {
+						continue;
+					}
+					best = v;
+					bestMove = sibling.move;
+					point.raise(best);
+					if (hi <= best) {
+						/* Refuted: call off the siblings still searching. */
+						cutoff = sibling.move;
+						point.cut();
+					}
+				}
+				if (halted(stack)) {
+					return best;
+				}
+				if (cutoff != PackedMove.NONE && ordering) {
+					stack.cutoff(depth, s, cutoff);
+				}
+				break;
+			}
+			int move = ordering ? stack.pick(depth, list, i) : list.get(i);
+			b.makeMove(move);
+			if (futile && i > 0 && !MoveOrder.isTactical(move) && !inCheck(b, opps)) {
+				/* Too quiet to lift the score to lo in the plies left. */
+				b.unmakeMove();
+				continue;
+			}
+			double v = child(stack, b, depth, s, i, move, check, best, hi);
+			b.unmakeMove();
+			if (halted(stack)) {
+				/* Unfinished, so neither the score nor the table can use it. */
+				return best;
+			}
+			floor = rootAlpha();
+			if (s != side) {
+				hi = Math.min(hi, -floor);
+			} else if (floor > best) {
+				best = floor;
+				bestMove = 0;
+			}
+			if (v > best) {
+				best = v;
+				bestMove = move;
+			}
+			if (bestMove == 0 && hi <= best) {
+				/* Closed by another root move, with nothing learned to store. */
+				return best;
+			}
+			/* lo-hi prune */
+			if (hi <= best) {
+				if (ordering) {
+					stack.cutoff(depth, s, move);
+				}
+				break;
+			}
+		}
+		int bound = TranspositionTable.EXACT;
+		if (hi <= best) {
+			bound = TranspositionTable.LOWER;
+		} else if (bestMove == 0) {
+			bound = TranspositionTable.UPPER;
+		}
+		table.store(key, depth, bound, toTable(best, ply), bestMove);
+		return best;
+	}
+
+	/**
+	 * Search the move just made at a node: late moves at reduced depth
+	 * first, then with principal variation search every move after the
+	 * first with a null window, searching again if it beats the best.
+	 *
+	 * @param stack buffers of the searching thread
+	 * @param b     board, with the move made
+	 * @param depth remaining depth at the node
+	 * @param s     side that made the move
+	 * @param i     index of the move in the node's ordering
+	 * @param move  the packed move
+	 * @param check whether the side moving was in check
+	 * @param best  best score so far at the node, or alpha if higher
+	 * @param beta  upper bound of the node's window
+	 * @return the move's score, or best if it is no better
+	 */
+	private double child(final SearchStack stack, final Board b, final int depth, final Side s, final int i,
+			final int move, final boolean check, final double best, final double beta) {
+		Side opps = Piece.opposite(s);
+		double v = best;
+		int r = reduction(stack, b, depth, i, move, check, s);
+		if (r > 0) {
+			/* Late move: prove it no better at reduced depth first. */
+			v = -search(stack, b, depth - 1 - r, opps, -Math.nextUp(best), -best, true);
+		}
+		if (r > 0 && (v <= best || halted(stack))) {
+			v = best;
+		} else if (pvs && i > 0) {
+			/* Prove this move no better than the best, or search it fully. */
+			v = -search(stack, b, depth - 1, opps, -Math.nextUp(best), -best, true);
+			if (v > best && v < beta && !halted(stack)) {
+				v = -search(stack, b, depth - 1, opps, -beta, -best, true);
+			}
+		} else {
+			v = -search(stack, b, depth - 1, opps, -beta, -best, true);
+		}
+		return v;
+	}
+
+	/**
+	 * Get the best score among the root moves finished so far. Below the
+	 * root, the side that moved there need not look at anything scoring at
+	 * most this, and its opponent may stop as soon as it has held the move
+	 * to this.
+	 *
+	 * @return root alpha, or negative infinity outside the root splitting
+	 */
+	private double rootAlpha() {
+		return Double.longBitsToDouble(rootAlpha.get());
+	}
+
+	/**
+	 * Raise the root alpha to a root move's exact score, unless another
+	 * move has already done better.
+	 *
+	 * @param score exact score of a root move
+	 * @return true if the score is now the root alpha
+	 */
+	private boolean raiseRootAlpha(final double score) {
+		while (true) {
+			long bits = rootAlpha.get();
+			if (Double.longBitsToDouble(bits) >= score) {
+				return false;
+			} else if (rootAlpha.compareAndSet(bits, Double.doubleToLongBits(score))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Determine if a search should give up: the turn is over, the game has
+	 * been called off, or the node it was forked from has been refuted.
+	 * Cancellation, and the deadline of a search on the calling thread, are
+	 * only looked at every so many positions.
+	 *
+	 * @param stack buffers of the searching thread
+	 * @return true if the search's result is no longer wanted
+	 */
+	private boolean halted(final SearchStack stack) {
+		if ((stack.nodes() & CANCEL_POLL) == 0
+				&& (cancellation.isCancelled() || serial && System.nanoTime() - start >= deadline)) {
+			stopped = true;
+		}
+		return stopped || stack.aborted();
+	}
+
+	/**
+	 * Search one of a node's moves forked after the first, on a board and
+	 * buffers of its own, since whichever worker picks it up may be in the
+	 * middle of another search.
+	 */
+	private final class Sibling extends RecursiveTask<Double> {
+
+		/** Version for object serialization. */
+		@Serial
+		private static final long serialVersionUID = 1L;
+
+		/** The node the move is made at. */
+		private final transient SplitPoint point;
+
+		/** Index of the move in the node's ordering. */
+		private final int index;
+
+		/** The packed move. */
+		private final int move;
+
+		/**
+		 * Prepare the search of a forked move.
+		 *
+		 * @param at  the node the move is made at
+		 * @param i   index of the move in the node's ordering
+		 * @param mv  the packed move
+		 */
+		Sibling(final SplitPoint at, final int i, final int mv) {
+			point = at;
+			index = i;
+			move = mv;
+		}
+
+		@Override
+		protected Double compute() {
+			if (stopped || point.aborted()) {
+				return Double.NaN;
+			}
+			Helper helper = helper();
+			SearchStack stack = helper.stack;
+			Board b = helper.board;
+			stack.begin(turns, point.root(), quiescence);
+			stack.split(point);
+			long visited = stack.nodes();
+			Side s = point.side();
+			point.enter(b);
+			b.makeMove(move);
+			double v = Double.NaN;
+			if (!point.futile() || MoveOrder.isTactical(move) || inCheck(b, Piece.opposite(s))) {
+				double best = point.best();
+				v = child(stack, b, point.depth(), s, index, move, point.check(), best, point.beta());
+			}
+			b.unmakeMove();
+			point.leave(b);
+			if (halted(stack)) {
+				v = Double.NaN;
+			}
+			nodes.add(stack.nodes() - visited);
+			stack.split(null);
+			helpers.add(helper);
+			return v;
+		}
+	}
+
+	/**
+	 * A board at the current turn's position and search buffers, for a
+	 * forked search.
+	 */
+	private static final class Helper {
+
+		/** Search buffers. */
+		private final SearchStack stack = new SearchStack();
+
+		/** Board at the root position of the turn it was copied for. */
+		private Board board;
+
+		/** Turn the board was copied for. */
+		private int turn = -1;
+	}
+
+	/**
+	 * Take a helper for a forked search, at the current turn's position.
+	 *
+	 * @return a helper no other search is using
+	 */
+	private Helper helper() {
+		Helper helper = helpers.poll();
+		if (helper == null) {
+			helper = new Helper();
+		}
+		if (helper.turn != turns) {
+			helper.board = rootBoard.copy();
+			helper.board.reserve(maxDepth);
+			helper.turn = turns;
+		}
+		return helper;
+	}
+
+	/**
+	 * Make a mate score relative to the position it is stored for, rather
+	 * than to the root, so it stays right wherever the position recurs.
+	 *
+	 * @param v   score as searched
+	 * @param ply distance of the position from the root
+	 * @return score to store in the transposition table
+	 */
+	private static double toTable(final double v, final int ply) {
+		if (v > MATE_BOUND) {
+			return v + ply;
+		} else if (v < -MATE_BOUND) {
+			return v - ply;
+		}
+		return v;
+	}
+
+	/**
+	 * Make a stored mate score relative to the root again.
+	 *
+	 * @param v   score from the transposition table
+	 * @param ply distance of the position from the root
+	 * @return score as searched
+	 */
+	private static double fromTable(final double v, final int ply) {
+		if (v > MATE_BOUND) {
+			return v - ply;
+		} else if (v < -MATE_BOUND) {
+			return v + ply;
+		}
+		return v;
+	}
+
+	/**
+	 * Decide how much less deeply to search a move made late in a ply. Moves
+	 * ordered late rarely turn out best, so quiet ones are searched less
+	 * deeply, more so the later they come and the deeper the search. Moves
+	 * out of or into check, captures, promotions and killers are never
+	 * reduced.
+	 *
+	 * @param stack buffers of the searching thread
+	 * @param b     board, with the move made
+	 * @param depth remaining depth before the move
+	 * @param i     index of the move in the ply's ordering
+	 * @param move  the packed move
+	 * @param check whether the side moving was in check
+	 * @param s     side moving
+	 * @return plies to reduce by, or 0
+	 */
+	private int reduction(final SearchStack stack, final Board b, final int depth, final int i, final int move,
+			final boolean check, final Side s) {
+		if (lmr <= 0 || depth < LMR_DEPTH || i < lmrMoves || check || MoveOrder.isTactical(move)
+				|| move == stack.killer(depth, 0) || move == stack.killer(depth, 1)
+				|| inCheck(b, Piece.opposite(s))) {
+			return 0;
+		}
+		int r = (int) (lmr * Math.log(depth) * Math.log(i));
+		return Math.max(1, Math.min(r, depth - 2));
+	}
+
+	/**
+	 * Determine if a side's king is attacked.
+	 *
+	 * @param b board to check
+	 * @param s side of the king
+	 * @return true if in check
+	 */
+	private static boolean inCheck(final Board b, final Side s) {
+		int king = b.kingSquare(s);
+		return king >= 0 && b.isSquareAttacked(king, Piece.opposite(s));
+	}
+
+	/**
+	 * Determine if a side has anything besides its king and pawns, without
+	 * which passing the turn is too often the best move for null-move
+	 * pruning to be safe.
+	 *
+	 * @param b board to check
+	 * @param s side to check
+	 * @return true if the side has a piece
+	 */
+	private static boolean hasPieces(final Board b, final Side s) {
+		for (int i = 0; i < b.pieceCount(s); i++) {
+			PieceType type = b.piece(s, i).getType();
+			if (type != PieceType.PAWN && type != PieceType.KING) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Search only captures and promotions, so that a position is never
+	 * valued in the middle of an exchange. The side to move may instead
+	 * "stand pat" on the position's value, since it is never forced to
+	 * capture. Captures that could not raise the score to alpha even if the
+	 * victim came for free are skipped (delta pruning), as are those that
+	 * lose material once the exchange plays out. The search stops after the
+	 * configured number of plies whatever is left hanging.
+	 *
+	 * @param stack buffers of the searching thread
+	 * @param b     board to search
+	 * @param depth zero at the first quiescence ply, then negative
+	 * @param s     side for current move
+	 * @param alpha lower bound to check
+	 * @param beta  upper bound to check
+	 * @return best valuation found
+	 */
+	private double quiesce(final SearchStack stack, final Board b, final int depth, final Side s,
+			final double alpha, final double beta) {
+		double stand = valuate(stack, b);
+		if (s != side) {
+			stand = -stand;
+		}
+		if (stand >= beta || depth <= -quiescence) {
+			return stand;
+		}
+		double best = Math.max(alpha, stand);
+		MoveBuffer list = stack.moves(depth);
+		b.generate(s, true, list);
+		int n = 0;
+		for (int i = 0; i < list.size(); i++) {
+			int move = list.get(i);
+			if (MoveOrder.isTactical(move) && stand + (gain(move) + delta) * wMaterial > best
+					&& !order.isLosing(b, move)) {
+				list.set(n++, move);
+			}
+		}
+		list.truncate(n);
+		if (ordering) {
+			order.scoreTactical(stack, list, depth);
+		}
+		Side opps = Piece.opposite(s);
+		for (int i = 0; i < list.size(); i++) {
+			int move = ordering ? stack.pick(depth, list, i) : list.get(i);
+			b.makeMove(move);
+			stack.visit();
+			double v = -quiesce(stack, b, depth - 1, opps, -beta, -best);
+			b.unmakeMove();
+			if (halted(stack)) {
 				return best;
 			}
+			if (v > best) {
+				best = v;
+				if (beta <= best) {
+					break;
+				}
+			}
 		}
 		return best;
 	}
 
+	/**
+	 * Material gained by a capture or promotion.
+	 *
+	 * @param move packed move
+	 * @return value of the victim plus what promotion adds
+	 */
+	private double gain(final int move) {
+		double g = 0;
+		PieceType victim = PackedMove.captured(move);
+		if (victim != null) {
+			g += typeValues[victim.ordinal()];
+		} else if (PackedMove.kind(move) == PackedMove.EN_PASSANT) {
+			g += typeValues[PieceType.PAWN.ordinal()];
+		}
+		PieceType promoted = PackedMove.promoted(move);
+		if (promoted != null) {
+			g += typeValues[promoted.ordinal()] - typeValues[PieceType.PAWN.ordinal()];
+		}
+		return g;
+	}
+
 	/**
 	 * Determine value of this board.
 	 *
-	 * @param b board to be valuated
+	 * @param stack buffers of the searching thread
+	 * @param b     board to be valuated
 	 * @return valuation of this board
 	 */
-	private double valuate(final Board b) {
+	private double valuate(final SearchStack stack, final Board b) {
 		double material = materialValue(b);
 		double kingSafety = kingInsafetyValue(b);
-		double mobility = mobilityValue(b);
+		double mobility = mobilityValue(stack, b);
 		return material * wMaterial + kingSafety * wSafety + mobility * wMobility;
 	}
 
@@ -263,14 +1506,10 @@ public class Minimax implements Player {
 	 */
 	private double materialValue(final Board b) {
 		double value = 0;
-		for (int y = 0; y < b.getHeight(); y++) {
-			for (int x = 0; x < b.getWidth(); x++) {
-				Position pos = new Position(x, y);
-				Piece p = b.getPiece(pos);
-				if (p != null) {
-					int reverse = p.getSide() == Side.WHITE ? 1 : -1;
-					value += values.get(p.getClass()) * reverse;
-				}
+		for (Side s : SIDES) {
+			int reverse = s == Side.WHITE ? 1 : -1;
+			for (int i = 0; i < b.pieceCount(s); i++) {
+				value += typeValues[b.piece(s, i).getType().ordinal()] * reverse;
 			}
 		}
 		return value * (side == Side.WHITE ? 1 : -1);
@@ -300,20 +1539,23 @@ public class Minimax implements Player {
 			/* Weird, but may happen during evaluation. */
 			return Double.POSITIVE_INFINITY;
 		}
-		MoveList list = new MoveList(b, false);
-		/* Take advantage of the Rook and Bishop code. */
-		Rook.getMoves(b.getPiece(king), list);
-		Bishop.getMoves(b.getPiece(king), list);
-		return list.size();
+		/* Count the queen moves the king would have. */
+		return b.countMoves(b.getPiece(king), Board.ORTHOGONAL | Board.DIAGONAL);
 	}
 
 	/**
 	 * Mobility score for this board.
 	 *
-	 * @param b board to be evaluated
+	 * @param stack buffers of the searching thread
+	 * @param b     board to be evaluated
 	 * @return score for this board
 	 */
-	private double mobilityValue(final Board b) {
-		return (double) b.allMoves(side, false).size()- b.allMoves(Piece.opposite(side), false).size();
+	private double mobilityValue(final SearchStack stack, final Board b) {
+		MoveBuffer list = stack.scratch();
+		b.generate(side, false, list);
+		int mine = list.size();
+		list.clear();
+		b.generate(Piece.opposite(side), false, list);
+		return (double) mine - list.size();
 	}
 }
@@ -0,0 +1,163 @@
+package com.nullprogram.chess.models.ai;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.PackedMove;
+import com.nullprogram.chess.models.PieceType;
+import com.nullprogram.chess.models.Side;
+
+/**
+ * Scores moves so the search tries the likeliest refutations first.
+ *
+ * In order: the move stored for the position in the transposition table,
+ * then captures and promotions by most valuable victim and least valuable
+ * attacker, then the two killer moves of the ply, then every other move by
+ * its history score, and last the captures that static exchange evaluation
+ * says lose material. The more often the first move tried is the best one,
+ * the more of the rest alpha-beta can skip.
+ */
+final class MoveOrder {
+
+	/** Key of the transposition table's move. */
+	private static final int HASH = 1 << 30;
+
+	/** Base key of captures and promotions. */
+	private static final int CAPTURE = 1 << 28;
+
+	/** Key of the second killer; the first gets one more. */
+	private static final int KILLER = 1 << 24;
+
+	/** Base key of captures that lose material, below every quiet move. */
+	private static final int LOSING = -(1 << 24);
+
+	/** Value of each piece type, by ordinal. */
+	private final double[] values;
+
+	/** Rank of each piece type by configured value, lowest 0. */
+	private final int[] rank = new int[PieceType.COUNT];
+
+	/**
+	 * Rank the piece types by their values.
+	 *
+	 * @param typeValues value of each piece type, by ordinal
+	 */
+	MoveOrder(final double[] typeValues) {
+		values = typeValues;
+		for (int t = 0; t < values.length; t++) {
+			for (double v : values) {
+				if (v < values[t]) {
+					rank[t]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Score a ply's moves into the stack's keys for that ply.
+	 *
+	 * @param stack    buffers of the searching thread
+	 * @param b        the board the moves are for
+	 * @param list     the moves
+	 * @param depth    remaining depth at the ply
+	 * @param s        side to move
+	 * @param hashMove squares of the transposition table's move, or 0
+	 */
+	void score(final SearchStack stack, final Board b, final MoveBuffer list, final int depth, final Side s,
+			final int hashMove) {
+		int[] keys = stack.keys(depth, list.size());
+		int first = stack.killer(depth, 0);
+		int second = stack.killer(depth, 1);
+		for (int i = 0; i < list.size(); i++) {
+			int move = list.get(i);
+			int key;
+			if ((move & TranspositionTable.MOVE_MASK) == hashMove) {
+				key = HASH;
+			} else if (isTactical(move)) {
+				key = (isLosing(b, move) ? LOSING : CAPTURE) + mvvLva(move);
+			} else if (move == first) {
+				key = KILLER + 1;
+			} else if (move == second) {
+				key = KILLER;
+			} else {
+				key = stack.history(s, move);
+			}
+			keys[i] = key;
+		}
+	}
+
+	/**
+	 * Score the captures and promotions of a quiescence ply into the stack's
+	 * keys, by victim and attacker alone. Losing captures have already been
+	 * dropped there, so no exchanges are worked out.
+	 *
+	 * @param stack buffers of the searching thread
+	 * @param list  the moves
+	 * @param depth remaining depth at the ply
+	 */
+	void scoreTactical(final SearchStack stack, final MoveBuffer list, final int depth) {
+		int[] keys = stack.keys(depth, list.size());
+		for (int i = 0; i < list.size(); i++) {
+			keys[i] = mvvLva(list.get(i));
+		}
+	}
+
+	/**
+	 * Determine if a capture loses material once the exchange it starts has
+	 * played out. A piece taking one worth at least as much cannot lose, so
+	 * the exchange is only worked out for the rest.
+	 *
+	 * @param b    the board the move is for
+	 * @param move packed move
+	 * @return true if the capture loses material
+	 */
+	boolean isLosing(final Board b, final int move) {
+		PieceType victim = PackedMove.captured(move);
+		if (victim == null || values[victim.ordinal()] >= values[PackedMove.moved(move).ordinal()]) {
+			return false;
+		}
+		return b.see(move, values) < 0;
+	}
+
+	/**
+	 * Key a capture or promotion by most valuable victim, then least valuable
+	 * attacker.
+	 *
+	 * @param move packed move
+	 * @return the key, below the CAPTURE band's width
+	 */
+	private int mvvLva(final int move) {
+		return gain(move) * PieceType.COUNT + PieceType.COUNT - 1 - rank[PackedMove.moved(move).ordinal()];
+	}
+
+	/**
+	 * Determine if a move captures or promotes, and so is ordered by what
+	 * it gains rather than by the killer and history tables.
+	 *
+	 * @param move packed move
+	 * @return true for a capture or promotion
+	 */
+	static boolean isTactical(final int move) {
+		return PackedMove.isCapture(move) || PackedMove.kind(move) == PackedMove.PROMOTION;
+	}
+
+	/**
+	 * Rank what a capture or promotion gains.
+	 *
+	 * @param move packed move
+	 * @return rank of the victim plus rank of the promotion
+	 */
+	private int gain(final int move) {
+		int g = 0;
+		PieceType victim = PackedMove.captured(move);
+		if (victim != null) {
+			g += rank[victim.ordinal()];
+		} else if (PackedMove.kind(move) == PackedMove.EN_PASSANT) {
+			g += rank[PieceType.PAWN.ordinal()];
+		}
+		PieceType promoted = PackedMove.promoted(move);
+		if (promoted != null) {
+			g += rank[promoted.ordinal()];
+		}
+		return g;
+	}
+}
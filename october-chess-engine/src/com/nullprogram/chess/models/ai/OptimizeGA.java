@@ -30,6 +30,12 @@ public class OptimizeGA implements GameListener {
 	/** Locked-in dpeth: we don't change this in the population. */
 	static final int DEPTH = 4;
 
+	/** Largest null move reduction in a new configuration. */
+	static final int NULL_MOVE_RANGE = 3;
+
+	/** Largest number of moves spared reduction in a new configuration. */
+	static final int LMR_MOVES_RANGE = 6;
+
 	/** Maximum number of moves. */
 	static final int MAX_MOVES = 75;
 
@@ -209,6 +215,9 @@ public class OptimizeGA implements GameListener {
 		conf.put("material", rng.nextDouble());
 		conf.put("safety", rng.nextDouble());
 		conf.put("mobility", rng.nextDouble());
+		conf.put("nullmove", (double) rng.nextInt(NULL_MOVE_RANGE + 1));
+		conf.put("lmr", rng.nextDouble() * 2);
+		conf.put("lmrmoves", 1.0 + rng.nextInt(LMR_MOVES_RANGE));
 		return conf;
 	}
 
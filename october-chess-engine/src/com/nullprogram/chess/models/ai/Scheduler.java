@@ -0,0 +1,328 @@
+package com.nullprogram.chess.models.ai;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The search threads of the whole process, shared by every AI player.
+ *
+ * Each search hands its tasks to a lane of its own, which runs at most as
+ * many at once as the search asked for threads. Lanes with tasks waiting
+ * take turns at the free workers, one task each, so concurrent games share
+ * the threads evenly rather than first come, first served. Tasks forked
+ * from inside a running task skip the lanes and are stolen by idle workers
+ * as usual.
+ *
+ * The workers are daemons, never more than the parallelism, and retire
+ * when idle, so finished games leave no threads behind. Shutting the
+ * scheduler down cancels whatever has not started; the next search then
+ * gets a new one.
+ */
+public final class Scheduler {
+
+	/** Seconds an idle worker waits for work before retiring. */
+	private static final long KEEP_ALIVE = 60;
+
+	/** Workers of a new scheduler, all processors unless set. */
+	private static int configured = Runtime.getRuntime().availableProcessors();
+
+	/** The scheduler in use, or null before the first search. */
+	private static Scheduler shared;
+
+	/** Most tasks from the lanes running at once. */
+	private final int parallelism;
+
+	/** The workers. */
+	private final ForkJoinPool pool;
+
+	/** Lanes with a task waiting and room to run it, in turn order. */
+	private final Queue<Lane> ready = new ArrayDeque<>();
+
+	/** Tasks from the lanes running now. */
+	private int running;
+
+	/** Tasks waiting in the lanes. */
+	private int queued;
+
+	/** Whether the scheduler has been shut down. */
+	private boolean shut;
+
+	/**
+	 * Create a scheduler with a number of workers.
+	 *
+	 * @param workers the parallelism
+	 */
+	private Scheduler(final int workers) {
+		parallelism = workers;
+		pool = new ForkJoinPool(workers, p -> {
+			/* The default workers are daemons already. */
+			ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+			t.setName("Search-" + t.getPoolIndex());
+			return t;
+		}, null, false, 0, workers, 1, p -> true, KEEP_ALIVE, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Get the scheduler every search shares, starting one if there is none
+	 * or the last was shut down.
+	 *
+	 * @return the scheduler
+	 */
+	public static synchronized Scheduler shared() {
+		if (shared == null || shared.isShutdown()) {
+			shared = new Scheduler(configured);
+		}
+		return shared;
+	}
+
+	/**
+	 * Set the number of workers. The running scheduler, if any, is shut
+	 * down, and the next search starts one of the new size.
+	 *
+	 * @param workers the parallelism, at least 1
+	 */
+	public static synchronized void setParallelism(final int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("parallelism " + workers);
+		}
+		configured = workers;
+		if (shared != null) {
+			shared.shutdown();
+		}
+	}
+
+	/**
+	 * Open a lane for one search's tasks.
+	 *
+	 * @param limit most of its tasks running at once
+	 * @return executor feeding the lane
+	 */
+	Executor lane(final int limit) {
+		return new Lane(Math.max(1, limit));
+	}
+
+	/**
+	 * Stop taking tasks, cancel those still waiting and let the workers
+	 * retire once the running ones finish.
+	 */
+	public void shutdown() {
+		Queue<Runnable> dropped = new ArrayDeque<>();
+		synchronized (this) {
+			shut = true;
+			for (Lane lane : ready) {
+				lane.waiting = false;
+				lane.drain(dropped);
+			}
+			ready.clear();
+		}
+		pool.shutdown();
+		cancel(dropped);
+	}
+
+	/**
+	 * Cancel tasks that will never run, so that whoever waits on them hears
+	 * of it at once.
+	 *
+	 * @param tasks the tasks
+	 * @throws RejectedExecutionException if a task cannot be cancelled
+	 */
+	private static void cancel(final Queue<Runnable> tasks) {
+		for (Runnable task : tasks) {
+			if (task instanceof Future<?> future) {
+				future.cancel(false);
+			} else {
+				throw new RejectedExecutionException("scheduler shut down");
+			}
+		}
+	}
+
+	/**
+	 * Determine if the scheduler has been shut down.
+	 *
+	 * @return true once shut down
+	 */
+	public synchronized boolean isShutdown() {
+		return shut;
+	}
+
+	/**
+	 * Get the most tasks from the lanes running at once.
+	 *
+	 * @return the number of workers
+	 */
+	public int parallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Get the number of workers started and not yet retired.
+	 *
+	 * @return live worker threads
+	 */
+	int poolSize() {
+		return pool.getPoolSize();
+	}
+
+	/**
+	 * Wait for the workers to finish their tasks and retire after a
+	 * shutdown.
+	 *
+	 * @param timeout longest time to wait
+	 * @param unit    unit of the timeout
+	 * @return true if every worker has retired
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return pool.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * Get the number of tasks waiting for a worker: those in the lanes and
+	 * those forked but not yet stolen.
+	 *
+	 * @return the queue depth
+	 */
+	public synchronized int queued() {
+		return queued + (int) Math.min(Integer.MAX_VALUE, pool.getQueuedTaskCount());
+	}
+
+	/**
+	 * Get the fraction of the workers busy searching right now.
+	 *
+	 * @return utilization, from 0 to 1
+	 */
+	public double utilization() {
+		return Math.min(1.0, (double) pool.getActiveThreadCount() / parallelism);
+	}
+
+	/**
+	 * Summarize the scheduler's load for the log.
+	 *
+	 * @return queue depth and utilization
+	 */
+	public String report() {
+		return String.format(Locale.ROOT, "%d queued, %.0f%% of %d workers busy", queued(), 100 * utilization(),
+				parallelism);
+	}
+
+	/**
+	 * Put a lane in line for a worker, if it has a task waiting and room
+	 * to run it. The caller holds the lock.
+	 *
+	 * @param lane the lane
+	 */
+	private void offer(final Lane lane) {
+		if (!lane.waiting && !lane.tasks.isEmpty() && lane.running < lane.limit) {
+			lane.waiting = true;
+			ready.add(lane);
+		}
+	}
+
+	/**
+	 * Hand waiting tasks to free workers, one from each lane in turn. The
+	 * caller holds the lock.
+	 */
+	private void dispatch() {
+		while (running < parallelism && !ready.isEmpty()) {
+			Lane lane = ready.remove();
+			lane.waiting = false;
+			Runnable task = lane.tasks.remove();
+			lane.running++;
+			running++;
+			queued--;
+			offer(lane);
+			pool.execute(() -> run(lane, task));
+		}
+	}
+
+	/**
+	 * Run a task on a worker, then pass the worker on.
+	 *
+	 * @param lane the lane the task came from
+	 * @param task the task
+	 */
+	private void run(final Lane lane, final Runnable task) {
+		Queue<Runnable> dropped = null;
+		try {
+			task.run();
+		} finally {
+			synchronized (this) {
+				lane.running--;
+				running--;
+				if (shut) {
+					/* Left behind by a lane that was full at the shutdown. */
+					dropped = new ArrayDeque<>();
+					lane.drain(dropped);
+				} else {
+					offer(lane);
+					dispatch();
+				}
+			}
+		}
+		if (dropped != null) {
+			cancel(dropped);
+		}
+	}
+
+	/**
+	 * The tasks of one search.
+	 */
+	private final class Lane implements Executor {
+
+		/** Tasks waiting, oldest first. */
+		private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+		/** Most tasks running at once. */
+		private final int limit;
+
+		/** Tasks running now. */
+		private int running;
+
+		/** Whether the lane is in line for a worker. */
+		private boolean waiting;
+
+		/**
+		 * Create an empty lane.
+		 *
+		 * @param most most tasks running at once
+		 */
+		Lane(final int most) {
+			limit = most;
+		}
+
+		/**
+		 * Take every waiting task out of the lane. The caller holds the
+		 * lock.
+		 *
+		 * @param into where to put them
+		 */
+		void drain(final Queue<Runnable> into) {
+			into.addAll(tasks);
+			queued -= tasks.size();
+			tasks.clear();
+		}
+
+		@Override
+		public void execute(final Runnable task) {
+			synchronized (Scheduler.this) {
+				if (!shut) {
+					tasks.add(task);
+					queued++;
+					offer(this);
+					dispatch();
+					return;
+				}
+			}
+			Queue<Runnable> late = new ArrayDeque<>();
+			late.add(task);
+			cancel(late);
+		}
+	}
+}
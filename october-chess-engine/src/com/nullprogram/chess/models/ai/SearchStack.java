@@ -0,0 +1,277 @@
+package com.nullprogram.chess.models.ai;
+
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.PackedMove;
+import com.nullprogram.chess.models.PieceType;
+import com.nullprogram.chess.models.Side;
+import java.util.Arrays;
+
+/**
+ * Working storage for one search thread, or one forked search: a move
+ * buffer and ordering keys for each ply, quiescence plies included, the
+ * killer and history tables, plus scratch space for the evaluation.
+ *
+ * Everything is allocated up front and reused from search to search, so the
+ * search itself allocates nothing once the buffers have grown to size.
+ */
+final class SearchStack {
+
+	/** Number of killer moves kept per ply. */
+	private static final int KILLERS = 2;
+
+	/** Squares covered by the history table. */
+	private static final int SQUARES = PackedMove.MAX_SQUARE + 1;
+
+	/** History score past which the whole table is halved. */
+	private static final int HISTORY_MAX = 1 << 20;
+
+	/** Move buffers, indexed by remaining depth plus the quiescence plies. */
+	private MoveBuffer[] plies = new MoveBuffer[0];
+
+	/** Ordering keys of each ply's moves, indexed like the move buffers. */
+	private int[][] keys = new int[0][];
+
+	/** Quiet moves that caused a cutoff, by distance from the root. */
+	private int[] killers = new int[0];
+
+	/** Cutoffs by each side's pieces of each type moving to each square. */
+	private final int[] history = new int[2 * PieceType.COUNT * SQUARES];
+
+	/** Buffer for counting moves during evaluation. */
+	private final MoveBuffer scratch = new MoveBuffer();
+
+	/** Turn whose killers and history this stack holds. */
+	private int turn = -1;
+
+	/** Depth of the current root search. */
+	private int root;
+
+	/** Quiescence plies allowed below the current root search's depth. */
+	private int floor;
+
+	/** Positions visited by this thread. */
+	private long nodes;
+
+	/** Split point whose forked move this stack is searching, or null. */
+	private SplitPoint split;
+
+	/**
+	 * Prepare for searching a root move. The first search of a new turn
+	 * forgets the killers and ages the history.
+	 *
+	 * @param id    number of the turn being searched
+	 * @param depth the search depth
+	 * @param below the quiescence plies allowed below it
+	 */
+	void begin(final int id, final int depth, final int below) {
+		reserve(depth + below);
+		root = depth;
+		floor = below;
+		if (id != turn) {
+			turn = id;
+			Arrays.fill(killers, PackedMove.NONE);
+			for (int i = 0; i < history.length; i++) {
+				history[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Make sure there is a buffer for every ply of a search.
+	 *
+	 * @param depth the search depth, quiescence plies included
+	 */
+	private void reserve(final int depth) {
+		if (depth < plies.length) {
+			return;
+		}
+		MoveBuffer[] grown = new MoveBuffer[depth + 1];
+		System.arraycopy(plies, 0, grown, 0, plies.length);
+		int[][] grownKeys = new int[depth + 1][];
+		System.arraycopy(keys, 0, grownKeys, 0, keys.length);
+		for (int i = plies.length; i < grown.length; i++) {
+			grown[i] = new MoveBuffer();
+			grownKeys[i] = new int[0];
+		}
+		plies = grown;
+		keys = grownKeys;
+		int[] grownKillers = new int[KILLERS * (depth + 1)];
+		System.arraycopy(killers, 0, grownKillers, 0, killers.length);
+		killers = grownKillers;
+	}
+
+	/**
+	 * Get the cleared move buffer for a ply.
+	 *
+	 * @param depth remaining depth at the ply, negative in quiescence
+	 * @return an empty buffer
+	 */
+	MoveBuffer moves(final int depth) {
+		MoveBuffer buffer = plies[depth + floor];
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Get the ordering keys for a ply.
+	 *
+	 * @param depth remaining depth at the ply, negative in quiescence
+	 * @param size  number of moves to be keyed
+	 * @return an array of at least that many keys
+	 */
+	int[] keys(final int depth, final int size) {
+		int i = depth + floor;
+		if (keys[i].length < size) {
+			keys[i] = new int[Math.max(size, 2 * keys[i].length)];
+		}
+		return keys[i];
+	}
+
+	/**
+	 * Bring the best keyed of the remaining moves of a ply forward. Picking
+	 * one move at a time wastes no sorting on moves a cutoff skips.
+	 *
+	 * @param depth remaining depth at the ply, negative in quiescence
+	 * @param list  the ply's moves, keyed by MoveOrder
+	 * @param i     index of the next move to try
+	 * @return the move now at that index
+	 */
+	int pick(final int depth, final MoveBuffer list, final int i) {
+		int[] k = keys[depth + floor];
+		int best = i;
+		for (int j = i + 1; j < list.size(); j++) {
+			if (k[j] > k[best]) {
+				best = j;
+			}
+		}
+		if (best != i) {
+			int t = k[i];
+			k[i] = k[best];
+			k[best] = t;
+			list.swap(i, best);
+		}
+		return list.get(i);
+	}
+
+	/**
+	 * Get a killer move of a ply.
+	 *
+	 * @param depth remaining depth at the ply
+	 * @param slot  0 for the most recent, 1 for the one before
+	 * @return the packed move, or PackedMove.NONE
+	 */
+	int killer(final int depth, final int slot) {
+		return killers[KILLERS * (root - depth) + slot];
+	}
+
+	/**
+	 * Get the history score of a quiet move.
+	 *
+	 * @param s    side moving
+	 * @param move packed move
+	 * @return the score, below HISTORY_MAX
+	 */
+	int history(final Side s, final int move) {
+		return history[index(s, move)];
+	}
+
+	/**
+	 * Record the move that caused a cutoff. Captures and promotions are
+	 * already ordered by what they gain, so only quiet moves are recorded.
+	 *
+	 * @param depth remaining depth at the ply
+	 * @param s     side moving
+	 * @param move  packed move
+	 */
+	void cutoff(final int depth, final Side s, final int move) {
+		if (MoveOrder.isTactical(move)) {
+			return;
+		}
+		int k = KILLERS * (root - depth);
+		if (killers[k] != move) {
+			killers[k + 1] = killers[k];
+			killers[k] = move;
+		}
+		int i = index(s, move);
+		history[i] += depth * depth;
+		if (history[i] >= HISTORY_MAX) {
+			for (int j = 0; j < history.length; j++) {
+				history[j] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Get the depth of the current root search.
+	 *
+	 * @return the depth passed to begin()
+	 */
+	int root() {
+		return root;
+	}
+
+	/**
+	 * Set the split point whose forked move this stack searches.
+	 *
+	 * @param point the split point, or null when searching from the root
+	 */
+	void split(final SplitPoint point) {
+		split = point;
+	}
+
+	/**
+	 * Get the split point whose forked move this stack searches.
+	 *
+	 * @return the split point, or null when searching from the root
+	 */
+	SplitPoint split() {
+		return split;
+	}
+
+	/**
+	 * Determine if the search on this stack should give up because a split
+	 * point above it was cut.
+	 *
+	 * @return true if the forked search is no longer wanted
+	 */
+	boolean aborted() {
+		return split != null && split.aborted();
+	}
+
+	/**
+	 * Count a position visited.
+	 */
+	void visit() {
+		nodes++;
+	}
+
+	/**
+	 * Get the number of positions this thread has visited.
+	 *
+	 * @return positions visited, over every search
+	 */
+	long nodes() {
+		return nodes;
+	}
+
+	/**
+	 * Get the cleared scratch buffer.
+	 *
+	 * @return an empty buffer
+	 */
+	MoveBuffer scratch() {
+		scratch.clear();
+		return scratch;
+	}
+
+	/**
+	 * Index of a quiet move in the history table.
+	 *
+	 * @param s    side moving
+	 * @param move packed move
+	 * @return the index
+	 */
+	private static int index(final Side s, final int move) {
+		return (s.ordinal() * PieceType.COUNT + PackedMove.moved(move).ordinal()) * SQUARES + PackedMove.to(move);
+	}
+}
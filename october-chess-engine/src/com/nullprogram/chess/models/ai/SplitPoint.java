@@ -0,0 +1,197 @@
+package com.nullprogram.chess.models.ai;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.PackedMove;
+import com.nullprogram.chess.models.Side;
+
+/**
+ * A node whose remaining moves are being searched in parallel, once its
+ * first move has been searched alone (Young Brothers Wait).
+ *
+ * It holds what every forked sibling needs to reach and search its move:
+ * the moves leading to the node from the root, the window, and the best
+ * score so far, which the node raises as siblings finish so that those yet
+ * to start search narrower windows. When a sibling refutes the node, the
+ * node is cut and every search below it, forked from it or not, gives up.
+ */
+final class SplitPoint {
+
+	/** The split point the node itself is below, or null. */
+	private final SplitPoint parent;
+
+	/** Packed moves from the root to the node, PackedMove.NONE for a pass. */
+	private final int[] path;
+
+	/** Remaining depth at the node. */
+	private final int depth;
+
+	/** Side to move at the node. */
+	private final Side side;
+
+	/** Upper bound of the node's window. */
+	private final double beta;
+
+	/** Whether the side to move is in check. */
+	private final boolean check;
+
+	/** Whether quiet moves too weak to reach the window are skipped. */
+	private final boolean futile;
+
+	/** Depth of the iteration the node is searched for. */
+	private final int root;
+
+	/** Best score found so far at the node. */
+	private volatile double best;
+
+	/** Whether the node has been refuted, or its search abandoned. */
+	private volatile boolean cut;
+
+	/**
+	 * Describe a node about to fork its remaining moves.
+	 *
+	 * @param parent split point the node is below, or null
+	 * @param b      board at the node
+	 * @param depth  remaining depth at the node
+	 * @param side   side to move
+	 * @param best   score of the first move, or alpha if higher
+	 * @param beta   upper bound of the window
+	 * @param check  whether the side to move is in check
+	 * @param futile whether weak quiet moves are skipped
+	 * @param root   depth of the iteration
+	 */
+	SplitPoint(final SplitPoint parent, final Board b, final int depth, final Side side, final double best,
+			final double beta, final boolean check, final boolean futile, final int root) {
+		this.parent = parent;
+		path = new int[b.madeCount()];
+		for (int i = 0; i < path.length; i++) {
+			path[i] = b.made(i);
+		}
+		this.depth = depth;
+		this.side = side;
+		this.best = best;
+		this.beta = beta;
+		this.check = check;
+		this.futile = futile;
+		this.root = root;
+	}
+
+	/**
+	 * Play the moves leading to the node on a board at the root position.
+	 *
+	 * @param b the board
+	 */
+	void enter(final Board b) {
+		for (int move : path) {
+			if (move == PackedMove.NONE) {
+				b.makeNullMove();
+			} else {
+				b.makeMove(move);
+			}
+		}
+	}
+
+	/**
+	 * Take the moves leading to the node back again.
+	 *
+	 * @param b the board, at the node
+	 */
+	void leave(final Board b) {
+		for (int i = 0; i < path.length; i++) {
+			b.unmakeMove();
+		}
+	}
+
+	/**
+	 * Determine if the search below this node should give up, because this
+	 * node or one above it was cut.
+	 *
+	 * @return true if the node or an ancestor was cut
+	 */
+	boolean aborted() {
+		for (SplitPoint p = this; p != null; p = p.parent) {
+			if (p.cut) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Abandon the rest of the node's search.
+	 */
+	void cut() {
+		cut = true;
+	}
+
+	/**
+	 * Raise the best score so far.
+	 *
+	 * @param score the new best score
+	 */
+	void raise(final double score) {
+		best = score;
+	}
+
+	/**
+	 * Get the best score so far, the floor of a sibling's window.
+	 *
+	 * @return best score
+	 */
+	double best() {
+		return best;
+	}
+
+	/**
+	 * Get the remaining depth at the node.
+	 *
+	 * @return remaining depth
+	 */
+	int depth() {
+		return depth;
+	}
+
+	/**
+	 * Get the side to move at the node.
+	 *
+	 * @return side to move
+	 */
+	Side side() {
+		return side;
+	}
+
+	/**
+	 * Get the upper bound of the node's window.
+	 *
+	 * @return beta
+	 */
+	double beta() {
+		return beta;
+	}
+
+	/**
+	 * Determine if the side to move is in check at the node.
+	 *
+	 * @return true if in check
+	 */
+	boolean check() {
+		return check;
+	}
+
+	/**
+	 * Determine if weak quiet moves are skipped at the node.
+	 *
+	 * @return true if futility pruning applies
+	 */
+	boolean futile() {
+		return futile;
+	}
+
+	/**
+	 * Get the depth of the iteration the node is searched for.
+	 *
+	 * @return iteration depth
+	 */
+	int root() {
+		return root;
+	}
+}
@@ -0,0 +1,211 @@
+package com.nullprogram.chess.models.ai;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size transposition table shared by every search thread without
+ * locks.
+ *
+ * Each entry is three longs: the data, the score, and the position key
+ * xored with both. A reader accepts the entry only if the three words xor
+ * back to the key it is looking for, so an entry torn by two threads
+ * writing at once is simply seen as a miss rather than as wrong data.
+ *
+ * The data word holds, from the low bits up: the origin and destination of
+ * the best move (the low 20 bits of a PackedMove), the remaining depth, the
+ * bound type and the age of the search that stored it. The score keeps all
+ * the bits of its double, since the search compares it against windows a
+ * single ulp wide.
+ */
+final class TranspositionTable {
+
+	/** Bound type: the score is exact. */
+	static final int EXACT = 1;
+
+	/** Bound type: the score is at least the stored value. */
+	static final int LOWER = 2;
+
+	/** Bound type: the score is at most the stored value. */
+	static final int UPPER = 3;
+
+	/** Mask of the best move's squares. */
+	static final int MOVE_MASK = (1 << 20) - 1;
+
+	/** Shift of the depth field. */
+	private static final int DEPTH = 20;
+
+	/** Largest depth that can be stored. */
+	private static final int MAX_DEPTH = (1 << 6) - 1;
+
+	/** Shift of the bound field. */
+	private static final int BOUND = 26;
+
+	/** Shift of the age field. */
+	private static final int AGE = 28;
+
+	/**
+	 * Mask of the age field, wide enough that the age never wraps around in
+	 * practice and so never makes a stale entry look current.
+	 */
+	private static final int AGE_MASK = Integer.MAX_VALUE;
+
+	/** Longs per entry. */
+	private static final int WORDS = 3;
+
+	/** Check, data and score words, three per entry. */
+	private final long[] entries;
+
+	/** Mask selecting an entry index from a key. */
+	private final int mask;
+
+	/** Age of the current search, stamped on new entries. */
+	private volatile int age;
+
+	/** Lookups made during the current search. */
+	private final LongAdder probes = new LongAdder();
+
+	/** Lookups that found their position. */
+	private final LongAdder hits = new LongAdder();
+
+	/** Lookups whose score ended the search of their node. */
+	private final LongAdder cutoffs = new LongAdder();
+
+	/**
+	 * Create an empty table.
+	 *
+	 * @param bits log base 2 of the number of entries
+	 */
+	TranspositionTable(final int bits) {
+		entries = new long[WORDS << bits];
+		mask = (1 << bits) - 1;
+	}
+
+	/**
+	 * Start a new search: age the existing entries and reset the counters.
+	 */
+	void newSearch() {
+		age = (age + 1) & AGE_MASK;
+		probes.reset();
+		hits.reset();
+		cutoffs.reset();
+	}
+
+	/**
+	 * Look up a position.
+	 *
+	 * @param key the position's hash
+	 * @return the entry's data word, or 0 if the position is not stored
+	 */
+	long probe(final long key) {
+		probes.increment();
+		int i = ((int) key & mask) * WORDS;
+		long data = entries[i + 1];
+		if (data == 0 || (entries[i] ^ data ^ entries[i + 2]) != key) {
+			return 0;
+		}
+		hits.increment();
+		return data;
+	}
+
+	/**
+	 * Store the result of searching a position. An entry left by an older
+	 * search is always replaced; one from this search only by a search at
+	 * least as deep, or of the same position.
+	 *
+	 * @param key   the position's hash
+	 * @param depth the remaining depth searched
+	 * @param bound EXACT, LOWER or UPPER
+	 * @param score the score found
+	 * @param move  the best move found, or 0
+	 */
+	void store(final long key, final int depth, final int bound, final double score, final int move) {
+		int i = ((int) key & mask) * WORDS;
+		long old = entries[i + 1];
+		if (old != 0 && (entries[i] ^ old ^ entries[i + 2]) != key && age(old) == age && depth(old) > depth) {
+			return;
+		}
+		long data = (long) age << AGE
+				| (long) bound << BOUND
+				| (long) Math.min(depth, MAX_DEPTH) << DEPTH
+				| (move & MOVE_MASK);
+		long bits = Double.doubleToRawLongBits(score);
+		entries[i] = key ^ data ^ bits;
+		entries[i + 1] = data;
+		entries[i + 2] = bits;
+	}
+
+	/**
+	 * Count a lookup whose score was used in place of a search.
+	 */
+	void cutoff() {
+		cutoffs.increment();
+	}
+
+	/**
+	 * Describe the lookups of the current search.
+	 *
+	 * @return hit and cutoff rates as percentages of lookups
+	 */
+	String report() {
+		double total = Math.max(1, probes.sum());
+		return String.format(Locale.ROOT, "table %.1f%% hits, %.1f%% cutoffs", 100 * hits.sum() / total,
+				100 * cutoffs.sum() / total);
+	}
+
+	/**
+	 * Get the score of an entry found by a probe.
+	 *
+	 * @param key  the position's hash
+	 * @param data entry data word returned by the probe
+	 * @return the score, or NaN if the entry has been overwritten since
+	 */
+	double score(final long key, final long data) {
+		int i = ((int) key & mask) * WORDS;
+		long bits = entries[i + 2];
+		if ((entries[i] ^ data ^ bits) != key) {
+			return Double.NaN;
+		}
+		return Double.longBitsToDouble(bits);
+	}
+
+	/**
+	 * Get the depth of an entry.
+	 *
+	 * @param data entry data word
+	 * @return remaining depth searched
+	 */
+	static int depth(final long data) {
+		return (int) (data >>> DEPTH) & MAX_DEPTH;
+	}
+
+	/**
+	 * Get the bound type of an entry.
+	 *
+	 * @param data entry data word
+	 * @return EXACT, LOWER or UPPER
+	 */
+	static int bound(final long data) {
+		return (int) (data >>> BOUND) & 3;
+	}
+
+	/**
+	 * Get the best move of an entry.
+	 *
+	 * @param data entry data word
+	 * @return the low 20 bits of the packed move, or 0
+	 */
+	static int move(final long data) {
+		return (int) data & MOVE_MASK;
+	}
+
+	/**
+	 * Get the age of an entry.
+	 *
+	 * @param data entry data word
+	 * @return age of the search that stored it
+	 */
+	private static int age(final long data) {
+		return (int) (data >>> AGE & AGE_MASK);
+	}
+}
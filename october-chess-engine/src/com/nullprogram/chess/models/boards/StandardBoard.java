@@ -111,39 +111,19 @@ public class StandardBoard extends Board {
 	 */
 	public final int moveCount(final Side side) {
 		int count = 0;
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				Piece p = getPiece(new Position(x, y));
-				if ((p != null) && (p.getSide() == side)) {
-					count += p.getMoves(true).size();
-				}
-			}
+		for (int i = 0; i < pieceCount(side); i++) {
+			count += piece(side, i).getMoves(true).size();
 		}
 		return count;
 	}
 
 	@Override
 	public final Boolean check(final Side side) {
-		Side attacker;
-		if (side == Side.WHITE) {
-			attacker = Side.BLACK;
-		} else {
-			attacker = Side.WHITE;
-		}
 		Position kingPos = findKing(side);
 		if (kingPos == null) {
 			/* no king on board, but can happen in AI evaluation */
 			return false;
 		}
-		for (int y = 0; y < getHeight(); y++) {
-			for (int x = 0; x < getWidth(); x++) {
-				Piece p = getPiece(new Position(x, y));
-				if ((p != null) && (p.getSide() == attacker) && p.getMoves(false).containsDest(kingPos)) {
-
-					return true;
-				}
-			}
-		}
-		return false;
+		return isSquareAttacked(squareOf(kingPos), Piece.opposite(side));
 	}
 }
@@ -1,9 +1,9 @@
 package com.nullprogram.chess.models.pieces;
 
-import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Board;
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
-import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Side;
 
 import java.io.Serial;
@@ -25,7 +25,7 @@ public class Bishop extends Piece {
 	 * @param side piece side
 	 */
 	public Bishop(final Side side) {
-		super(side, "Bishop");
+		super(side, PieceType.BISHOP);
 	}
 
 	@Override
@@ -46,50 +46,7 @@ public class Bishop extends Piece {
      */
     public static final MoveList getMoves(final Piece p,
                                           final MoveList list) {
-        /* Scan each direction and stop looking when we run into something. */
-        Position home = p.getPosition();
-        int x = home.getX();
-        int y = home.getY();
-        while (x >= 0 && y >= 0) {
-            x--;
-            y--;
-            Position pos = new Position(x, y);
-            if(!list.addPieceMove(home,pos)) {
-        		break;
-        	}
-        }
-        x = home.getX();
-        y = home.getY();
-        while (x < p.getBoard().getWidth() &&
-               y < p.getBoard().getHeight()) {
-
-            x++;
-            y++;
-            Position pos = new Position(x, y);
-            if(!list.addPieceMove(home,pos)) {
-        		break;
-        	}
-        }
-        x = home.getX();
-        y = home.getY();
-        while (x >= 0 && y < p.getBoard().getHeight()) {
-            x--;
-            y++;
-            Position pos = new Position(x, y);
-            if(!list.addPieceMove(home,pos)) {
-        		break;
-        	}
-        }
-        x = home.getX();
-        y = home.getY();
-        while (x < p.getBoard().getWidth() && y >= 0) {
-            x++;
-            y--;
-            Position pos = new Position(x, y);
-            if(!list.addPieceMove(home,pos)) {
-        		break;
-        	}
-        }
+        p.getBoard().addMoves(p, Board.DIAGONAL, list);
         return list;
     }
 }
@@ -2,6 +2,7 @@ package com.nullprogram.chess.models.pieces;
 
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Side;
 
 import java.io.Serial;
@@ -24,7 +25,7 @@ public class Chancellor extends Piece {
 	 * @param side piece owner
 	 */
 	public Chancellor(final Side side) {
-		super(side, "Chancellor");
+		super(side, PieceType.CHANCELLOR);
 	}
 
 	@Override
@@ -1,8 +1,10 @@
 package com.nullprogram.chess.models.pieces;
 
+import com.nullprogram.chess.models.Board;
 import com.nullprogram.chess.models.Move;
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Position;
 import com.nullprogram.chess.models.Side;
 
@@ -31,20 +33,13 @@ public class King extends Piece {
 	 * @param side piece owner
 	 */
 	public King(final Side side) {
-		super(side, "King");
+		super(side, PieceType.KING);
 	}
 
 	@Override
 	public final MoveList getMoves(final boolean check) {
 		MoveList list = new MoveList(getBoard(), check);
-		Position pos = getPosition();
-		for (int y = -1; y <= 1; y++) {
-			for (int x = -1; x <= 1; x++) {
-				if (x != 0 || y != 0) {
-					list.addCapture(new Move(pos, new Position(pos, x, y)));
-				}
-			}
-		}
+		getBoard().addMoves(this, Board.STEP, list);
 
 		/* check for castling */
 		enemy = null;
@@ -79,7 +74,7 @@ public class King extends Piece {
 			max = getBoard().getWidth() - 1;
 		}
 
-		Position rookPos = new Position(max, pos.getY());
+		Position rookPos = Position.of(max, pos.getY());
 		Piece rook = getBoard().getPiece(rookPos);
 		if (rook == null || rook.moved()) {
 			return null;
@@ -87,9 +82,9 @@ public class King extends Piece {
 
 		if (emptyRow(getPosition(), dir, max) && !inCheck()) {
 			/* generate the move */
-			Position kpos = new Position(pos, dir * dist, 0);
+			Position kpos = Position.of(pos, dir * dist, 0);
 			Move kingDest = new Move(pos, kpos);
-			Position rpos = new Position(pos, dir * dist - dir, 0);
+			Position rpos = Position.of(pos, dir * dist - dir, 0);
 			Move rookDest = new Move(rookPos, rpos);
 			kingDest.setNext(rookDest);
 			return kingDest;
@@ -107,7 +102,7 @@ public class King extends Piece {
 	 */
 	private boolean emptyRow(final Position start, final int dir, final int max) {
 		for (int i = start.getX() + dir; i != max; i += dir) {
-			Position pos = new Position(i, start.getY());
+			Position pos = Position.of(i, start.getY());
 			if (getBoard().getPiece(pos) != null || enemyMoves().containsDest(pos)) {
 
 				return false;
@@ -1,9 +1,9 @@
 package com.nullprogram.chess.models.pieces;
 
-import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Board;
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
-import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Side;
 
 import java.io.Serial;
@@ -19,23 +19,13 @@ public class Knight extends Piece {
 	@Serial
     private static final long serialVersionUID = -524621034L;
 
-	/**
-	 * Short segment of movement.
-	 */
-	static final int NEAR = 1;
-
-	/**
-	 * Long segment of movement.
-	 */
-	static final int FAR = 2;
-
 	/**
 	 * Create a new knight on the given side.
 	 *
 	 * @param side piece owner
 	 */
 	public Knight(final Side side) {
-		super(side, "Knight");
+		super(side, PieceType.KNIGHT);
 	}
 
 	@Override
@@ -55,15 +45,7 @@ public class Knight extends Piece {
 	 * @return the modified list
 	 */
 	public static MoveList getMoves(final Piece p, final MoveList list) {
-		Position pos = p.getPosition();
-		list.addCapture(new Move(pos, new Position(pos, NEAR, FAR)));
-		list.addCapture(new Move(pos, new Position(pos, FAR, NEAR)));
-		list.addCapture(new Move(pos, new Position(pos, -FAR, NEAR)));
-		list.addCapture(new Move(pos, new Position(pos, -FAR, -NEAR)));
-		list.addCapture(new Move(pos, new Position(pos, FAR, -NEAR)));
-		list.addCapture(new Move(pos, new Position(pos, NEAR, -FAR)));
-		list.addCapture(new Move(pos, new Position(pos, -NEAR, -FAR)));
-		list.addCapture(new Move(pos, new Position(pos, -NEAR, FAR)));
+		p.getBoard().addMoves(p, Board.JUMP, list);
 		return list;
 	}
 }
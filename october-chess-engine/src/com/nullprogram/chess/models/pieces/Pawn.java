@@ -4,6 +4,7 @@ import com.nullprogram.chess.models.Board;
 import com.nullprogram.chess.models.Move;
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Position;
 import com.nullprogram.chess.models.Side;
 
@@ -27,7 +28,7 @@ public class Pawn extends Piece {
 	 * @param side piece owner
 	 */
 	public Pawn(final Side side) {
-		super(side, "Pawn");
+		super(side, PieceType.PAWN);
 	}
 
 	@Override
@@ -36,38 +37,38 @@ public class Pawn extends Piece {
 		Position pos = getPosition();
 		Board board = getBoard();
 		int dir = direction();
-		Position dest = new Position(pos, 0, dir);
+		Position dest = Position.of(pos, 0, dir);
 		Move first = new Move(pos, dest);
 		addUpgrade(first);
 		if (list.addMove(first) && Boolean.FALSE.equals(moved())) {
-			list.addMove(new Move(pos, new Position(pos, 0, 2 * dir)));
+			list.addMove(new Move(pos, Position.of(pos, 0, 2 * dir)));
 		}
-		Move captureLeft = new Move(pos, new Position(pos, -1, dir));
+		Move captureLeft = new Move(pos, Position.of(pos, -1, dir));
 		addUpgrade(captureLeft);
 		list.addCaptureOnly(captureLeft);
-		Move captureRight = new Move(pos, new Position(pos, 1, dir));
+		Move captureRight = new Move(pos, Position.of(pos, 1, dir));
 		addUpgrade(captureRight);
 		list.addCaptureOnly(captureRight);
 
 		/* check for en passant */
 		Move last = board.last();
 		if (last != null) {
-			Position left = new Position(pos, -1, 0);
-			Position right = new Position(pos, 1, 0);
+			Position left = Position.of(pos, -1, 0);
+			Position right = Position.of(pos, 1, 0);
 			Position lOrigin = last.getOrigin();
 			Position lDest = last.getDest();
 			if (left.equals(lDest) && (lOrigin.getX() == lDest.getX()) && (lOrigin.getY() == lDest.getY() + dir * 2)
 					&& (board.getPiece(left) instanceof Pawn)) {
 
 				/* en passant to the left */
-				Move passant = new Move(pos, new Position(pos, -1, dir));
+				Move passant = new Move(pos, Position.of(pos, -1, dir));
 				passant.setNext(new Move(left, null));
 				list.addMove(passant);
 			} else if (right.equals(lDest) && (lOrigin.getX() == lDest.getX())
 					&& (lOrigin.getY() == lDest.getY() + dir * 2) && (board.getPiece(right) instanceof Pawn)) {
 
 				/* en passant to the right */
-				Move passant = new Move(pos, new Position(pos, 1, dir));
+				Move passant = new Move(pos, Position.of(pos, 1, dir));
 				passant.setNext(new Move(right, null));
 				list.addMove(passant);
 			}
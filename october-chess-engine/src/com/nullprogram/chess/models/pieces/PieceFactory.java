@@ -1,10 +1,11 @@
 package com.nullprogram.chess.models.pieces;
 
 import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Side;
 
 /**
- * Creates pieces based on their name strings.
+ * Creates pieces based on their name strings or types.
  */
 public final class PieceFactory {
 
@@ -20,10 +21,41 @@ public final class PieceFactory {
 	 * @return the new piece
 	 */
 	public static Piece create(final String name, final Side side) {
-		if ("Queen".equals(name)) {
+		for (PieceType type : PieceType.values()) {
+			if (type.getName().equals(name)) {
+				return create(type, side);
+			}
+		}
+		/* Maybe throw an exception here? */
+		return null;
+	}
+
+	/**
+	 * Create a new piece of the given type.
+	 *
+	 * @param type type of the piece
+	 * @param side side for the new piece
+	 * @return the new piece
+	 */
+	public static Piece create(final PieceType type, final Side side) {
+		switch (type) {
+		case PAWN:
+			return new Pawn(side);
+		case KNIGHT:
+			return new Knight(side);
+		case BISHOP:
+			return new Bishop(side);
+		case ROOK:
+			return new Rook(side);
+		case QUEEN:
 			return new Queen(side);
-		} else {
-			/* Maybe throw an exception here? */
+		case KING:
+			return new King(side);
+		case CHANCELLOR:
+			return new Chancellor(side);
+		case ARCHBISHOP:
+			return new Archbishop(side);
+		default:
 			return null;
 		}
 	}
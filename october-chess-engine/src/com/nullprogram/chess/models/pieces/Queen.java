@@ -2,6 +2,7 @@ package com.nullprogram.chess.models.pieces;
 
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Side;
 
 import java.io.Serial;
@@ -23,7 +24,7 @@ public class Queen extends Piece {
 	 * @param side piece owner
 	 */
 	public Queen(final Side side) {
-		super(side, "Queen");
+		super(side, PieceType.QUEEN);
 	}
 
 	@Override
@@ -1,8 +1,9 @@
 package com.nullprogram.chess.models.pieces;
 
+import com.nullprogram.chess.models.Board;
 import com.nullprogram.chess.models.MoveList;
 import com.nullprogram.chess.models.Piece;
-import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.PieceType;
 import com.nullprogram.chess.models.Side;
 
 import java.io.Serial;
@@ -24,7 +25,7 @@ public class Rook extends Piece {
 	 * @param side piece owner
 	 */
 	public Rook(final Side side) {
-		super(side, "Rook");
+		super(side, PieceType.ROOK);
 	}
 
 	@Override
@@ -45,44 +46,7 @@ public class Rook extends Piece {
      */
     public static MoveList getMoves(final Piece p,
                                     final MoveList list) {
-        /* Scan each direction and stop looking when we run into something. */
-        Position home = p.getPosition();
-        int x = home.getX();
-        int y = home.getY();
-        while (x >= 0) {
-            x--;
-            Position pos = new Position(x, y);
-            if (!list.addPieceMove(home,pos)) {
-                break;
-            }
-        }
-        x = home.getX();
-        y = home.getY();
-        while (x < p.getBoard().getWidth()) {
-            x++;
-            Position pos = new Position(x, y);
-            if (!list.addPieceMove(home,pos)) {
-                break;
-            }
-        }
-        x = home.getX();
-        y = home.getY();
-        while (y >= 0) {
-            y--;
-            Position pos = new Position(x, y);
-            if (!list.addPieceMove(home,pos)) {
-                break;
-            }
-        }
-        x = home.getX();
-        y = home.getY();
-        while (y < p.getBoard().getHeight()) {
-            y++;
-            Position pos = new Position(x, y);
-            if (!list.addPieceMove(home,pos)) {
-                break;
-            }
-        }
+        p.getBoard().addMoves(p, Board.ORTHOGONAL, list);
         return list;
     }
 }
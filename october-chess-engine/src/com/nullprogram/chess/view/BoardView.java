@@ -139,7 +139,7 @@ public class BoardView extends JComponent {
 		if (getFlipped()) {
 			y = boardController.getBoard().getHeight() - 1 - y;
 		}
-		return new Position(x, y);
+		return Position.of(x, y);
 	}
 
 	/**
@@ -210,7 +210,7 @@ public class BoardView extends JComponent {
 		/* Place the pieces */
 		for (int y = 0; y < h; y++) {
 			for (int x = 0; x < w; x++) {
-				Piece p = board.getPiece(new Position(x, y));
+				Piece p = board.getPiece(Position.of(x, y));
 				if (p != null) {
 					Image tile = p.getImage();
 					int yy = y;
@@ -0,0 +1,65 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.ai.Minimax;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the search allocates nothing per node: a turn allocates at
+ * the root, such as the root boards, and a little per iteration, such as
+ * the log line, but none of that grows with the positions visited.
+ */
+public class AllocationTest {
+
+    /** Depth of the shallow turn, thousands of positions. */
+    private static final int SHALLOW = 5;
+
+    /** Depth of the deep turn, tens of thousands of positions. */
+    private static final int DEEP = 7;
+
+    /** Most bytes per extra position; any object per node is 16 at least. */
+    private static final double PER_NODE = 4.0;
+
+    /** Bytes allocated so far by the calling thread. */
+    private static long allocated() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /** A player searching on the calling thread, with an empty table. */
+    private static Minimax player(int depth) {
+        Properties props = Minimax.getConfig("default");
+        props.setProperty("depth", Integer.toString(depth));
+        props.setProperty("time", "1000");
+        props.setProperty("deadline", "1000");
+        /* Search on this thread, so that it is the only one to measure. */
+        props.setProperty("parallel", "off");
+        return new Minimax(null, props);
+    }
+
+    /** Bytes allocated by a fresh player's turn, and the nodes it visited. */
+    private static long[] turn(int depth) {
+        Minimax ai = player(depth);
+        Board board = new StandardBoard();
+        long before = allocated();
+        ai.takeTurn(board, Side.WHITE);
+        return new long[] {allocated() - before, ai.nodes()};
+    }
+
+    @Test
+    public void testSearchDoesNotAllocate() {
+        /* Warm up a player of its own, whose table would answer the others. */
+        player(SHALLOW).takeTurn(new StandardBoard(), Side.WHITE);
+        long[] shallow = turn(SHALLOW);
+        long[] deep = turn(DEEP);
+        double perNode = (double) (deep[0] - shallow[0]) / (deep[1] - shallow[1]);
+        Assertions.assertTrue(perNode < PER_NODE, shallow[0] + " bytes over " + shallow[1] + " nodes, then "
+            + deep[0] + " over " + deep[1] + ": " + perNode + " per node");
+    }
+}
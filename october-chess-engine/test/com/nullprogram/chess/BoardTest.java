@@ -1,6 +1,7 @@
 package com.nullprogram.chess;
 
 import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Position;
 import com.nullprogram.chess.models.boards.EmptyBoard;
 //import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
@@ -21,4 +22,12 @@ public class BoardTest {
     public void testGetHeight() {
         Assertions.assertEquals(SIZE, board.getWidth());
     }
+
+    @Test
+    public void testGetPieceOffBoard() {
+        int[][] off = {{-1, 0}, {SIZE, 0}, {0, -1}, {0, SIZE}, {-1, -1}, {SIZE, SIZE}, {-3, 2}, {SIZE + 3, 2}};
+        for (int[] xy : off) {
+            Assertions.assertNull(board.getPiece(new Position(xy[0], xy[1])), xy[0] + "," + xy[1]);
+        }
+    }
 }
@@ -0,0 +1,64 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.ai.Minimax;
+import com.nullprogram.chess.models.boards.Gothic;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that move ordering only changes how fast the search is, not the
+ * score it finds.
+ */
+public class OrderingTest {
+
+    private static final int DEPTH = 4;
+    private static final int POSITIONS = 6;
+    private static final int PLIES = 12;
+
+    /** Pruning that depends on move order, off so only ordering differs. */
+    private static final String[] PRUNING = {"nullmove", "lmr", "futility", "reversefutility", "razoring"};
+
+    /** Best score found for White, with or without ordering. */
+    private static double score(Board board, boolean ordering) {
+        Properties props = Minimax.getConfig("default");
+        props.setProperty("depth", Integer.toString(DEPTH));
+        props.setProperty("time", "1000");
+        props.setProperty("deadline", "1000");
+        props.setProperty("ordering", Boolean.toString(ordering));
+        for (String name : PRUNING) {
+            props.setProperty(name, "0");
+        }
+        return new Minimax(null, props).takeTurn(board, Side.WHITE).getScore();
+    }
+
+    /** Play random moves from a starting position. */
+    private static Board scramble(Board board, long seed) {
+        Random rng = new Random(seed);
+        Side side = Side.WHITE;
+        for (int ply = 0; ply < PLIES; ply++) {
+            List<Move> moves = new ArrayList<>();
+            for (Move move : board.allMoves(side, true)) {
+                moves.add(move);
+            }
+            board.move(moves.get(rng.nextInt(moves.size())));
+            side = side == Side.WHITE ? Side.BLACK : Side.WHITE;
+        }
+        return board;
+    }
+
+    @Test
+    public void testSameScore() {
+        for (int i = 0; i < POSITIONS; i++) {
+            Board board = scramble(i % 2 == 0 ? new StandardBoard() : new Gothic(), i);
+            Assertions.assertEquals(score(board, false), score(board, true), 1e-9, "position " + i);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.boards.EmptyBoard;
+import com.nullprogram.chess.models.boards.Gothic;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import com.nullprogram.chess.models.pieces.Archbishop;
+import com.nullprogram.chess.models.pieces.Bishop;
+import com.nullprogram.chess.models.pieces.Chancellor;
+import com.nullprogram.chess.models.pieces.King;
+import com.nullprogram.chess.models.pieces.Knight;
+import com.nullprogram.chess.models.pieces.Pawn;
+import com.nullprogram.chess.models.pieces.Queen;
+import com.nullprogram.chess.models.pieces.Rook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Leaf counts of the legal move tree, which pin down the exact set of moves
+ * the generator produces. The expected numbers come from the original
+ * generator, which tested every move by playing it and looking for check.
+ * Each tree is counted twice: with Move objects and with packed moves.
+ */
+public class PerftTest {
+
+    /** Count the leaves of the legal move tree. */
+    private static long perft(Board board, Side side, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        for (Move move : board.allMoves(side, true)) {
+            board.move(move);
+            nodes += perft(board, Piece.opposite(side), depth - 1);
+            board.undo();
+        }
+        return nodes;
+    }
+
+    /** Count the leaves of the legal move tree using packed moves. */
+    private static long packedPerft(Board board, Side side, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        long nodes = 0;
+        MoveBuffer moves = new MoveBuffer();
+        board.generate(side, true, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            nodes += packedPerft(board, Piece.opposite(side), depth - 1);
+            board.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private static void assertPerft(Board board, long... expected) {
+        for (int depth = 1; depth <= expected.length; depth++) {
+            Assertions.assertEquals(expected[depth - 1], perft(board, Side.WHITE, depth), "depth " + depth);
+            Assertions.assertEquals(expected[depth - 1], packedPerft(board, Side.WHITE, depth), "packed depth " + depth);
+        }
+    }
+
+    @Test
+    public void testStandard() {
+        assertPerft(new StandardBoard(), 20, 400, 8902, 197281);
+    }
+
+    @Test
+    public void testGothic() {
+        assertPerft(new Gothic(), 28, 784, 25283);
+    }
+
+    /** Open position with castling, pins and discovered checks. */
+    @Test
+    public void testMiddlegame() {
+        Board b = new EmptyBoard();
+        b.setPiece(4, 0, new King(Side.WHITE));
+        b.setPiece(0, 0, new Rook(Side.WHITE));
+        b.setPiece(7, 0, new Rook(Side.WHITE));
+        b.setPiece(4, 7, new King(Side.BLACK));
+        b.setPiece(0, 7, new Rook(Side.BLACK));
+        b.setPiece(7, 7, new Rook(Side.BLACK));
+        b.setPiece(3, 3, new Queen(Side.WHITE));
+        b.setPiece(2, 5, new Knight(Side.BLACK));
+        b.setPiece(5, 2, new Bishop(Side.WHITE));
+        b.setPiece(1, 6, new Pawn(Side.BLACK));
+        b.setPiece(6, 1, new Pawn(Side.WHITE));
+        b.setPiece(3, 6, new Pawn(Side.BLACK));
+        b.setPiece(4, 4, new Pawn(Side.WHITE));
+        b.setPiece(6, 6, new Bishop(Side.BLACK));
+        assertPerft(b, 58, 2137, 109652);
+    }
+
+    /** Promotions and en passant on both sides. */
+    @Test
+    public void testPromotion() {
+        Board b = new EmptyBoard();
+        b.setPiece(3, 0, new King(Side.WHITE));
+        b.setPiece(5, 7, new King(Side.BLACK));
+        b.setPiece(1, 6, new Pawn(Side.WHITE));
+        b.setPiece(6, 1, new Pawn(Side.BLACK));
+        b.setPiece(2, 7, new Rook(Side.BLACK));
+        b.setPiece(5, 0, new Knight(Side.WHITE));
+        b.setPiece(3, 4, new Pawn(Side.WHITE));
+        b.setPiece(4, 6, new Pawn(Side.BLACK));
+        assertPerft(b, 11, 181, 2118, 35178);
+    }
+
+    /** Fairy pieces, whose knight jumps give checks that cannot be blocked. */
+    @Test
+    public void testFairy() {
+        Board b = new EmptyBoard(10, 8);
+        b.setPiece(5, 0, new King(Side.WHITE));
+        b.setPiece(5, 7, new King(Side.BLACK));
+        b.setPiece(4, 3, new Chancellor(Side.WHITE));
+        b.setPiece(6, 5, new Archbishop(Side.BLACK));
+        b.setPiece(0, 0, new Rook(Side.WHITE));
+        b.setPiece(9, 7, new Rook(Side.BLACK));
+        b.setPiece(2, 1, new Pawn(Side.WHITE));
+        b.setPiece(7, 6, new Pawn(Side.BLACK));
+        assertPerft(b, 43, 1187, 43441);
+    }
+
+    /** A board too large for bitboards, so the mailbox code is used. */
+    @Test
+    public void testWide() {
+        int size = 12;
+        Board b = new EmptyBoard(size, size);
+        for (Side side : Side.values()) {
+            int home = side == Side.WHITE ? 0 : size - 1;
+            int pawns = side == Side.WHITE ? 1 : size - 2;
+            Piece[] row = {new Rook(side), new Knight(side), new Bishop(side), new Chancellor(side),
+                new Archbishop(side), new Queen(side), new King(side), new Archbishop(side),
+                new Chancellor(side), new Bishop(side), new Knight(side), new Rook(side)};
+            for (int x = 0; x < size; x++) {
+                b.setPiece(x, home, row[x]);
+                b.setPiece(x, pawns, new Pawn(side));
+            }
+        }
+        assertPerft(b, 36, 1296, 55664);
+    }
+}
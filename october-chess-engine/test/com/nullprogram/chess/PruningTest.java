@@ -0,0 +1,106 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.ai.Minimax;
+import com.nullprogram.chess.models.boards.EmptyBoard;
+import com.nullprogram.chess.models.boards.Gothic;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import com.nullprogram.chess.models.pieces.King;
+import com.nullprogram.chess.models.pieces.Pawn;
+import com.nullprogram.chess.models.pieces.Rook;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks over a suite of positions that pruning near the leaves searches
+ * fewer positions while nearly always choosing the same move, and that
+ * mates are still found with it.
+ */
+public class PruningTest {
+
+    private static final int DEPTH = 4;
+    private static final int POSITIONS = 16;
+    private static final int AGREEMENT = 14;
+    private static final String[] SWITCHES = {"futility", "reversefutility", "razoring"};
+
+    /** Search settings with the frontier pruning on or off. */
+    private static Properties config(boolean pruning) {
+        Properties props = Minimax.getConfig("default");
+        props.setProperty("depth", Integer.toString(DEPTH));
+        props.setProperty("time", "1000");
+        props.setProperty("deadline", "1000");
+        if (!pruning) {
+            for (String name : SWITCHES) {
+                props.setProperty(name, "0");
+            }
+            props.setProperty("matedistance", "false");
+        }
+        return props;
+    }
+
+    /** Play a seeded number of random moves from a starting position. */
+    private static Board scramble(Board board, long seed) {
+        Random rng = new Random(seed);
+        Side side = Side.WHITE;
+        int plies = 2 * (4 + rng.nextInt(8));
+        for (int ply = 0; ply < plies; ply++) {
+            List<Move> moves = new ArrayList<>();
+            for (Move move : board.allMoves(side, true)) {
+                moves.add(move);
+            }
+            if (moves.isEmpty()) {
+                break;
+            }
+            board.move(moves.get(rng.nextInt(moves.size())));
+            side = side == Side.WHITE ? Side.BLACK : Side.WHITE;
+        }
+        return board;
+    }
+
+    private static boolean same(Move a, Move b) {
+        return a.getOrigin().equals(b.getOrigin()) && a.getDest().equals(b.getDest());
+    }
+
+    @Test
+    public void testSuite() {
+        int agree = 0;
+        long full = 0;
+        long pruned = 0;
+        for (int i = 0; i < POSITIONS; i++) {
+            Board board = scramble(i % 2 == 0 ? new StandardBoard() : new Gothic(), i);
+            if (board.checkmate(Side.WHITE) || board.stalemate(Side.WHITE)) {
+                continue;
+            }
+            Minimax plain = new Minimax(null, config(false));
+            Minimax fast = new Minimax(null, config(true));
+            if (same(plain.takeTurn(board, Side.WHITE), fast.takeTurn(board, Side.WHITE))) {
+                agree++;
+            }
+            full += plain.nodes();
+            pruned += fast.nodes();
+        }
+        Assertions.assertTrue(agree >= AGREEMENT, agree + " of " + POSITIONS + " moves unchanged");
+        Assertions.assertTrue(pruned < full, pruned + " nodes pruned, " + full + " not");
+    }
+
+    @Test
+    public void testMate() {
+        for (boolean pruning : new boolean[] {false, true}) {
+            Board board = new EmptyBoard();
+            board.setPiece(6, 0, new King(Side.WHITE));
+            board.setPiece(0, 0, new Rook(Side.WHITE));
+            board.setPiece(7, 7, new King(Side.BLACK));
+            board.setPiece(6, 6, new Pawn(Side.BLACK));
+            board.setPiece(7, 6, new Pawn(Side.BLACK));
+            Move move = new Minimax(null, config(pruning)).takeTurn(board, Side.WHITE);
+            Assertions.assertEquals(Position.of(0, 7), move.getDest());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.ai.Minimax;
+import com.nullprogram.chess.models.boards.EmptyBoard;
+import com.nullprogram.chess.models.pieces.King;
+import com.nullprogram.chess.models.pieces.Pawn;
+import com.nullprogram.chess.models.pieces.Queen;
+import java.util.Properties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that quiescence search sees the recapture a fixed-depth search
+ * stops short of.
+ */
+public class QuiescenceTest {
+
+    /** The defended pawn on d5. */
+    private static final Position BAIT = Position.of(3, 4);
+
+    private static Move bestMove(int quiescence) {
+        Board board = new EmptyBoard();
+        board.setPiece(7, 0, new King(Side.WHITE));
+        board.setPiece(3, 1, new Queen(Side.WHITE));
+        board.setPiece(7, 7, new King(Side.BLACK));
+        board.setPiece(3, 4, new Pawn(Side.BLACK));
+        board.setPiece(2, 5, new Pawn(Side.BLACK));
+        Properties props = Minimax.getConfig("default");
+        props.setProperty("depth", "1");
+        props.setProperty("quiescence", Integer.toString(quiescence));
+        return new Minimax(null, props).takeTurn(board, Side.WHITE);
+    }
+
+    @Test
+    public void testHorizon() {
+        Assertions.assertEquals(BAIT, bestMove(0).getDest());
+        Assertions.assertNotEquals(BAIT, bestMove(6).getDest());
+    }
+}
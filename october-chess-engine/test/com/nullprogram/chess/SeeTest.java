@@ -0,0 +1,99 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.PackedMove;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.boards.EmptyBoard;
+import com.nullprogram.chess.models.pieces.Archbishop;
+import com.nullprogram.chess.models.pieces.Bishop;
+import com.nullprogram.chess.models.pieces.Chancellor;
+import com.nullprogram.chess.models.pieces.King;
+import com.nullprogram.chess.models.pieces.Knight;
+import com.nullprogram.chess.models.pieces.Pawn;
+import com.nullprogram.chess.models.pieces.Queen;
+import com.nullprogram.chess.models.pieces.Rook;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks static exchange evaluation on small hand-built exchanges.
+ */
+public class SeeTest {
+
+    /** Piece values by PieceType ordinal. */
+    private static final double[] VALUES = {1, 3, 3, 5, 9, 1000, 8.5, 6};
+
+    /** A board holding only the two kings, out of the way. */
+    private static Board board() {
+        Board board = new EmptyBoard();
+        board.setPiece(0, 0, new King(Side.WHITE));
+        board.setPiece(7, 7, new King(Side.BLACK));
+        return board;
+    }
+
+    /** Exchange value of White's move between two squares. */
+    private static double see(Board board, int x1, int y1, int x2, int y2) {
+        MoveBuffer moves = new MoveBuffer();
+        board.generate(Side.WHITE, true, moves);
+        int from = board.squareOf(x1, y1);
+        int to = board.squareOf(x2, y2);
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            if (PackedMove.from(move) == from && PackedMove.to(move) == to) {
+                long before = board.hash();
+                double v = board.see(move, VALUES);
+                Assertions.assertEquals(before, board.hash());
+                return v;
+            }
+        }
+        throw new AssertionError("no such move");
+    }
+
+    @Test
+    public void testSimple() {
+        Board board = board();
+        board.setPiece(4, 3, new Pawn(Side.WHITE));
+        board.setPiece(3, 4, new Knight(Side.BLACK));
+        board.setPiece(5, 0, new Rook(Side.WHITE));
+        board.setPiece(5, 6, new Pawn(Side.BLACK));
+        Assertions.assertEquals(3.0, see(board, 4, 3, 3, 4), 0);
+        Assertions.assertEquals(1.0, see(board, 5, 0, 5, 6), 0);
+        board.setPiece(4, 7, new Bishop(Side.BLACK));
+        Assertions.assertEquals(-4.0, see(board, 5, 0, 5, 6), 0);
+    }
+
+    @Test
+    public void testXray() {
+        Board board = board();
+        board.setPiece(4, 4, new Pawn(Side.BLACK));
+        board.setPiece(4, 7, new Rook(Side.BLACK));
+        board.setPiece(4, 1, new Rook(Side.WHITE));
+        Assertions.assertEquals(-4.0, see(board, 4, 1, 4, 4), 0);
+        board.setPiece(4, 0, new Queen(Side.WHITE));
+        Assertions.assertEquals(1.0, see(board, 4, 1, 4, 4), 0);
+    }
+
+    @Test
+    public void testFairy() {
+        Board board = board();
+        board.setPiece(4, 4, new Pawn(Side.BLACK));
+        board.setPiece(4, 1, new Rook(Side.WHITE));
+        board.setPiece(5, 6, new Archbishop(Side.BLACK));
+        Assertions.assertEquals(-4.0, see(board, 4, 1, 4, 4), 0);
+        board.setPiece(2, 3, new Chancellor(Side.WHITE));
+        Assertions.assertEquals(1.0, see(board, 4, 1, 4, 4), 0);
+    }
+
+    @Test
+    public void testKing() {
+        Board board = new EmptyBoard();
+        board.setPiece(0, 0, new King(Side.WHITE));
+        board.setPiece(4, 5, new King(Side.BLACK));
+        board.setPiece(4, 4, new Pawn(Side.BLACK));
+        board.setPiece(4, 1, new Queen(Side.WHITE));
+        Assertions.assertEquals(-8.0, see(board, 4, 1, 4, 4), 0);
+        board.setPiece(4, 0, new Rook(Side.WHITE));
+        Assertions.assertEquals(1.0, see(board, 4, 1, 4, 4), 0);
+    }
+}
@@ -0,0 +1,92 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Game;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.ai.Minimax;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import java.util.Properties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a search too deep to finish is cut off at its deadline, or
+ * when its game is ended, and still answers with a legal move.
+ */
+public class TimeControlTest {
+
+    /** Deadline of a turn, in seconds; a depth-12 search takes minutes. */
+    private static final double DEADLINE = 1.0;
+
+    /** Fail if the search visits positions after its turn has returned. */
+    private static void assertStopped(Minimax ai, String parallel) throws InterruptedException {
+        long nodes = ai.nodes();
+        Thread.sleep(100);
+        Assertions.assertEquals(nodes, ai.nodes(), parallel + " kept searching after the turn");
+    }
+
+    @Test
+    public void testSerialDeadline() throws InterruptedException {
+        deadline("off");
+    }
+
+    @Test
+    public void testDeadline() throws InterruptedException {
+        deadline("root");
+    }
+
+    @Test
+    public void testLazyDeadline() throws InterruptedException {
+        deadline("lazy");
+    }
+
+    @Test
+    public void testForkingDeadline() throws InterruptedException {
+        deadline("ybwc");
+    }
+
+    @Test
+    public void testEnd() throws InterruptedException {
+        for (String parallel : new String[] {"off", "root", "lazy", "ybwc"}) {
+            Properties props = Minimax.getConfig("default");
+            props.setProperty("depth", "12");
+            props.setProperty("time", "1000");
+            props.setProperty("deadline", "1000");
+            props.setProperty("parallel", parallel);
+            props.setProperty("threads", "4");
+            Game game = new Game(new StandardBoard());
+            Minimax ai = new Minimax(game, props);
+            Board board = game.getBoard();
+            Move[] move = new Move[1];
+            Thread turn = new Thread(() -> move[0] = ai.takeTurn(board, Side.WHITE));
+            turn.start();
+            Thread.sleep(200);
+            game.end();
+            /* Without cancelling, the turn would take its full thousand seconds. */
+            turn.join((long) (1000 * 2 * DEADLINE));
+            Assertions.assertFalse(turn.isAlive(), parallel + " still searching after the game ended");
+            Assertions.assertTrue(board.isLegal(move[0]));
+            assertStopped(ai, parallel);
+        }
+    }
+
+    private static void deadline(String parallel) throws InterruptedException {
+        Properties props = Minimax.getConfig("default");
+        props.setProperty("depth", "12");
+        props.setProperty("time", Double.toString(DEADLINE / 2));
+        props.setProperty("deadline", Double.toString(DEADLINE));
+        props.setProperty("parallel", parallel);
+        props.setProperty("threads", "4");
+        Minimax ai = new Minimax(null, props);
+        Board board = new StandardBoard();
+        long start = System.nanoTime();
+        Move move = ai.takeTurn(board, Side.WHITE);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        /* Generous for a loaded machine, yet far short of finishing depth 12. */
+        Assertions.assertTrue(seconds < 2 * DEADLINE, parallel + " took " + seconds + " seconds");
+        Assertions.assertNotNull(move);
+        Assertions.assertTrue(board.isLegal(move));
+        assertStopped(ai, parallel);
+    }
+}
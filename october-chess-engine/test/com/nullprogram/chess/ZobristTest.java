@@ -0,0 +1,178 @@
+package com.nullprogram.chess;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.MoveBuffer;
+import com.nullprogram.chess.models.Piece;
+import com.nullprogram.chess.models.Position;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.boards.EmptyBoard;
+import com.nullprogram.chess.models.boards.Gothic;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import com.nullprogram.chess.models.pieces.King;
+import com.nullprogram.chess.models.pieces.Knight;
+import com.nullprogram.chess.models.pieces.Pawn;
+import com.nullprogram.chess.models.pieces.Queen;
+import com.nullprogram.chess.models.pieces.Rook;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the incrementally maintained Zobrist key against one recomputed
+ * from scratch after every change, and that it tells apart positions that
+ * differ only in side to move, castling rights or en passant.
+ */
+public class ZobristTest {
+
+    private static final int GAMES = 20;
+    private static final int PLIES = 80;
+    private static final int SEARCH_DEPTH = 2;
+
+    /** Fail unless the incremental key matches a full recomputation. */
+    private static void check(Board board) {
+        Assertions.assertEquals(board.computeHash(), board.hash());
+    }
+
+    /** Walk the packed move tree, checking the key at every node. */
+    private static void walk(Board board, Side side, int depth) {
+        check(board);
+        if (depth == 0) {
+            return;
+        }
+        MoveBuffer moves = new MoveBuffer();
+        board.generate(side, true, moves);
+        for (int i = 0; i < moves.size(); i++) {
+            long before = board.hash();
+            board.makeMove(moves.get(i));
+            walk(board, Piece.opposite(side), depth - 1);
+            board.unmakeMove();
+            Assertions.assertEquals(before, board.hash());
+        }
+    }
+
+    /** Play random games with the occasional take-back. */
+    private static void play(Board board, long seed) {
+        Random rng = new Random(seed);
+        Side side = Side.WHITE;
+        for (int ply = 0; ply < PLIES; ply++) {
+            List<Move> moves = new ArrayList<>();
+            for (Move move : board.allMoves(side, true)) {
+                moves.add(move);
+            }
+            if (moves.isEmpty()) {
+                break;
+            }
+            board.move(moves.get(rng.nextInt(moves.size())));
+            side = Piece.opposite(side);
+            check(board);
+            if (rng.nextInt(4) == 0) {
+                board.undo();
+                side = Piece.opposite(side);
+                check(board);
+            }
+            if (ply % 20 == 0) {
+                walk(board, side, SEARCH_DEPTH);
+            }
+        }
+        while (board.last() != null) {
+            board.undo();
+            check(board);
+        }
+    }
+
+    private static void move(Board board, int x1, int y1, int x2, int y2) {
+        board.move(new Move(Position.of(x1, y1), Position.of(x2, y2)));
+    }
+
+    @Test
+    public void testConsistency() {
+        for (int game = 0; game < GAMES; game++) {
+            play(new StandardBoard(), game);
+            play(new Gothic(), game);
+        }
+    }
+
+    @Test
+    public void testOtherSizes() {
+        int[][] sizes = {{5, 5}, {10, 8}, {12, 12}};
+        for (int[] size : sizes) {
+            int w = size[0];
+            int h = size[1];
+            Board board = new EmptyBoard(w, h);
+            board.setPiece(w / 2, 0, new King(Side.WHITE));
+            board.setPiece(w / 2, h - 1, new King(Side.BLACK));
+            board.setPiece(0, 0, new Rook(Side.WHITE));
+            board.setPiece(w - 1, h - 1, new Rook(Side.BLACK));
+            board.setPiece(1, 0, new Queen(Side.WHITE));
+            board.setPiece(w - 2, h - 1, new Knight(Side.BLACK));
+            for (int x = 0; x + 1 < w; x += 2) {
+                board.setPiece(x, 1, new Pawn(Side.WHITE));
+                board.setPiece(x + 1, h - 2, new Pawn(Side.BLACK));
+            }
+            check(board);
+            play(board, w * h);
+        }
+    }
+
+    @Test
+    public void testTransposition() {
+        Board board = new StandardBoard();
+        long start = board.hash();
+        move(board, 6, 0, 5, 2);
+        long one = board.hash();
+        move(board, 6, 7, 5, 5);
+        move(board, 5, 2, 6, 0);
+        Assertions.assertNotEquals(one, board.hash());
+        move(board, 5, 5, 6, 7);
+        Assertions.assertEquals(start, board.hash());
+    }
+
+    @Test
+    public void testCastlingRights() {
+        Board board = new EmptyBoard();
+        board.setPiece(4, 0, new King(Side.WHITE));
+        board.setPiece(0, 0, new Rook(Side.WHITE));
+        board.setPiece(4, 7, new King(Side.BLACK));
+        board.setPiece(0, 7, new Rook(Side.BLACK));
+        long start = board.hash();
+        move(board, 0, 0, 0, 1);
+        move(board, 0, 7, 0, 6);
+        move(board, 0, 1, 0, 0);
+        move(board, 0, 6, 0, 7);
+        check(board);
+        Assertions.assertNotEquals(start, board.hash());
+    }
+
+    @Test
+    public void testNullMove() {
+        Board board = new StandardBoard();
+        move(board, 4, 1, 4, 3);
+        long before = board.hash();
+        board.makeNullMove();
+        check(board);
+        Assertions.assertNotEquals(before, board.hash());
+        board.unmakeMove();
+        Assertions.assertEquals(before, board.hash());
+    }
+
+    @Test
+    public void testEnPassant() {
+        Board passant = new EmptyBoard();
+        Board plain = new EmptyBoard();
+        for (Board board : new Board[] {passant, plain}) {
+            board.setPiece(1, 0, new King(Side.WHITE));
+            board.setPiece(1, 7, new King(Side.BLACK));
+            board.setPiece(3, 3, new Pawn(Side.BLACK));
+        }
+        passant.setPiece(4, 1, new Pawn(Side.WHITE));
+        plain.setPiece(4, 2, new Pawn(Side.WHITE));
+        move(passant, 4, 1, 4, 3);
+        move(plain, 4, 2, 4, 3);
+        check(passant);
+        check(plain);
+        Assertions.assertNotEquals(plain.hash(), passant.hash());
+    }
+}
@@ -0,0 +1,64 @@
+package com.nullprogram.chess.models.ai;
+
+import com.nullprogram.chess.models.Board;
+import com.nullprogram.chess.models.Move;
+import com.nullprogram.chess.models.Side;
+import com.nullprogram.chess.models.boards.StandardBoard;
+import java.util.Properties;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that every player searches on the one shared pool of threads, and
+ * that the pool can be shut down and started again.
+ */
+public class SchedulerTest {
+
+    private static final int PLAYERS = 30;
+    private static final long TIMEOUT = 30;
+
+    private static Move turn(String parallel) {
+        Properties props = Minimax.getConfig("default");
+        props.setProperty("depth", "2");
+        props.setProperty("parallel", parallel);
+        props.setProperty("threads", "4");
+        Board board = new StandardBoard();
+        Move move = new Minimax(null, props).takeTurn(board, Side.WHITE);
+        Assertions.assertTrue(board.isLegal(move));
+        return move;
+    }
+
+    @Test
+    public void testShared() throws Exception {
+        Scheduler scheduler = Scheduler.shared();
+        for (int i = 0; i < PLAYERS; i++) {
+            turn(new String[] {"root", "lazy", "ybwc"}[i % 3]);
+        }
+        Assertions.assertSame(scheduler, Scheduler.shared());
+        Assertions.assertTrue(scheduler.poolSize() <= scheduler.parallelism(), scheduler.poolSize()
+                + " threads for " + PLAYERS + " players, " + scheduler.parallelism() + " workers");
+        FutureTask<Boolean> daemon = new FutureTask<>(() -> Thread.currentThread().isDaemon());
+        scheduler.lane(1).execute(daemon);
+        Assertions.assertTrue(daemon.get(TIMEOUT, TimeUnit.SECONDS), "workers hold up exit");
+    }
+
+    @Test
+    public void testShutdown() throws InterruptedException {
+        turn("root");
+        Scheduler first = Scheduler.shared();
+        first.shutdown();
+        Assertions.assertTrue(first.isShutdown());
+        Assertions.assertTrue(first.awaitTermination(TIMEOUT, TimeUnit.SECONDS));
+        Assertions.assertEquals(0, first.poolSize());
+        Assertions.assertEquals(0, first.queued());
+
+        FutureTask<Void> late = new FutureTask<>(() -> null);
+        first.lane(1).execute(late);
+        Assertions.assertTrue(late.isCancelled(), "task accepted after shutdown");
+
+        turn("root");
+        Assertions.assertNotSame(first, Scheduler.shared());
+    }
+}
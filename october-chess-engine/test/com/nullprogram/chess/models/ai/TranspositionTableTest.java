@@ -0,0 +1,50 @@
+package com.nullprogram.chess.models.ai;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that stored scores come back exactly, so that a bound never cuts
+ * off against a window one ulp wide, and that old entries stay replaceable
+ * however many searches go by.
+ */
+public class TranspositionTableTest {
+
+    private static final int BITS = 4;
+    private static final long KEY = 0x123456789abcdef1L;
+
+    @Test
+    public void testNullWindowBounds() {
+        TranspositionTable table = new TranspositionTable(BITS);
+        /* Not a float: rounding it to one lands past the window. */
+        double alpha = 0.1 + 1e-12;
+        double beta = Math.nextUp(alpha);
+
+        table.store(KEY, 1, TranspositionTable.LOWER, alpha, 0);
+        long entry = table.probe(KEY);
+        Assertions.assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        Assertions.assertFalse(table.score(KEY, entry) >= beta, "lower bound under the window cut off");
+
+        table.store(KEY, 1, TranspositionTable.UPPER, beta, 0);
+        entry = table.probe(KEY);
+        Assertions.assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        Assertions.assertFalse(table.score(KEY, entry) <= alpha, "upper bound over the window cut off");
+        Assertions.assertEquals(beta, table.score(KEY, entry));
+    }
+
+    @Test
+    public void testAgeDoesNotWrap() {
+        TranspositionTable table = new TranspositionTable(BITS);
+        long other = KEY ^ (1L << 40); // same slot, different position
+        table.newSearch();
+        table.store(KEY, 20, TranspositionTable.EXACT, 1.0, 0);
+        for (int i = 0; i < 64; i++) {
+            table.newSearch();
+        }
+        table.store(other, 1, TranspositionTable.EXACT, 2.0, 0);
+        Assertions.assertEquals(0, table.probe(KEY), "stale deep entry kept its slot");
+        long entry = table.probe(other);
+        Assertions.assertNotEquals(0, entry);
+        Assertions.assertEquals(2.0, table.score(other, entry));
+    }
+}